@@ -0,0 +1,53 @@
+package com.example.ex4springgaldrimer1.benchmark;
+
+import com.example.ex4springgaldrimer1.Ex4SpringGalDrimer1Application;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Starts the application for the Spring-backed benchmarks: no web server, a private in-memory H2 database
+ * in MySQL mode seeded by DataInitializer, quiet logging and a fixed low BCrypt cost so startup does not
+ * depend on the machine. Generated data uses SEED, so every run measures the same rows.
+ */
+final class BenchmarkApplication {
+
+    static final long SEED = 42L;
+
+    private BenchmarkApplication() {
+    }
+
+    /**
+     * Start the application on the named in-memory database. Extra command line properties come after the
+     * defaults, so they override them.
+     */
+    static ConfigurableApplicationContext start(String database, String... properties) {
+        // Devtools is on the test classpath; its restart class loader would only add noise
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        List<String> args = new ArrayList<>(List.of("--spring.profiles.active=benchmark",
+                "--spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate.orm.deprecation=ERROR",
+                "--app.password.bcrypt-cost=4",
+                "--app.images.dir=target/benchmark-images"));
+        args.addAll(Arrays.asList(properties));
+
+        return new SpringApplicationBuilder(Ex4SpringGalDrimer1Application.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(args.toArray(new String[0]));
+    }
+}
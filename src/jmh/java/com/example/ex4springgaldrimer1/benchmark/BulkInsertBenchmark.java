@@ -0,0 +1,108 @@
+package com.example.ex4springgaldrimer1.benchmark;
+
+import com.example.ex4springgaldrimer1.entity.Product;
+import com.example.ex4springgaldrimer1.entity.Store;
+import com.example.ex4springgaldrimer1.repository.ProductRepository;
+import com.example.ex4springgaldrimer1.repository.StoreRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProductRepository.saveAll and StoreRepository.saveAll of rows new entities, flushed and rolled back so every
+ * call inserts into the same tables. idGenerator picks the id strategy: "pooled" is the mapping the entities
+ * carry, pooled-lo table generators with JDBC batching; "identity" maps Product and Store back to IDENTITY
+ * columns through META-INF/identity-ids.orm.xml, where Hibernate must insert each row on its own to learn its id.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class BulkInsertBenchmark {
+
+    @Param({"pooled", "identity"})
+    public String idGenerator;
+
+    @Param({"2000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private StoreRepository storeRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = "identity".equals(idGenerator)
+                ? BenchmarkApplication.start("bulk-identity", "--spring.jpa.mapping-resources=META-INF/identity-ids.orm.xml")
+                : BenchmarkApplication.start("bulk-pooled");
+        productRepository = context.getBean(ProductRepository.class);
+        storeRepository = context.getBean(StoreRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int insertProducts() {
+        List<Product> products = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Product product = new Product("Benchmark Product " + i, "BENCH-" + i,
+                    new BigDecimal("19.99"), "Bulk insert benchmark row", "Benchmark");
+            product.setBrand("Benchmark");
+            product.setStockQuantity(10);
+            products.add(product);
+        }
+        return insertAndRollBack(() -> productRepository.saveAll(products));
+    }
+
+    @Benchmark
+    public int insertStores() {
+        List<Store> stores = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Store store = new Store("Benchmark Store " + i, i + " Benchmark Street", "Benchmark City", "BM", "10001");
+            store.setPhone("(555) 555-0100");
+            stores.add(store);
+        }
+        return insertAndRollBack(() -> storeRepository.saveAll(stores));
+    }
+
+    private int insertAndRollBack(Runnable saveAll) {
+        Integer inserted = transaction.execute(status -> {
+            saveAll.run();
+            entityManager.flush();
+            entityManager.clear();
+            status.setRollbackOnly();
+            return rows;
+        });
+        return inserted != null ? inserted : 0;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.ex4springgaldrimer1.benchmark;
+
+import com.example.ex4springgaldrimer1.entity.Product;
+import com.example.ex4springgaldrimer1.pagination.KeysetPage;
+import com.example.ex4springgaldrimer1.repository.ProductRepository;
+import com.example.ex4springgaldrimer1.service.ProductSearchIndex;
+import com.example.ex4springgaldrimer1.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog reads against an H2 catalog of catalogSize generated products: the in-memory search index alone,
+ * a relevance search page, a search combined with filters, and filtered listings by OFFSET page and by cursor.
+ * Each call takes the next query or filter set from a fixed rotation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class CatalogBenchmark {
+
+    private static final int PAGE_SIZE = 12;
+    private static final int INSERT_BATCH = 500;
+
+    private static final String[] BRANDS = {"Sony", "Samsung", "Apple", "Dell", "Bose", "Logitech", "Philips", "Canon"};
+    private static final String[] CATEGORIES = {"Electronics", "Audio", "Computers", "Cameras", "Home", "Sports"};
+    private static final String[] ADJECTIVES = {"Wireless", "Portable", "Compact", "Smart", "Pro", "Ultra", "Classic", "Mini"};
+    private static final String[] NOUNS = {"Headphones", "Speaker", "Laptop", "Camera", "Watch", "Keyboard",
+            "Mouse", "Monitor", "Router", "Blender", "Backpack", "Charger"};
+
+    private static final String[] QUERIES = {"wireless", "sony headphones", "portable speaker", "smart watch",
+            "camera", "pro laptop", "mini", "ultra monitor"};
+
+    @Param({"10000"})
+    public int catalogSize;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private ProductSearchIndex productSearchIndex;
+
+    private int call;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("catalog");
+        productService = context.getBean(ProductService.class);
+        productSearchIndex = context.getBean(ProductSearchIndex.class);
+
+        ProductRepository productRepository = context.getBean(ProductRepository.class);
+        TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        Random random = new Random(BenchmarkApplication.SEED);
+        for (int start = 0; start < catalogSize; start += INSERT_BATCH) {
+            List<Product> batch = new ArrayList<>(INSERT_BATCH);
+            for (int i = start; i < Math.min(start + INSERT_BATCH, catalogSize); i++) {
+                batch.add(newProduct(random, i));
+            }
+            transaction.executeWithoutResult(status -> productRepository.saveAll(batch));
+        }
+        // The index was built at startup, before these rows existed
+        productSearchIndex.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ProductSearchIndex.SearchResult searchIndex() {
+        return productSearchIndex.search(QUERIES[next(QUERIES.length)], 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Product> searchPage() {
+        return productService.searchProducts(QUERIES[next(QUERIES.length)], PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Page<Product> searchWithFilters() {
+        int n = next(QUERIES.length * CATEGORIES.length);
+        return productService.searchProductsWithFilters(QUERIES[n % QUERIES.length], CATEGORIES[n % CATEGORIES.length],
+                null, null, null, true, PageRequest.of(0, PAGE_SIZE, Sort.by("name")));
+    }
+
+    @Benchmark
+    public Page<Product> filters() {
+        int n = next(BRANDS.length * CATEGORIES.length);
+        return productService.getProductsWithFilters(null, CATEGORIES[n % CATEGORIES.length], BRANDS[n % BRANDS.length],
+                new BigDecimal("50"), new BigDecimal("1500"), true, PageRequest.of(0, PAGE_SIZE, Sort.by("price")));
+    }
+
+    @Benchmark
+    public Page<Product> filtersDeepPage() {
+        int n = next(CATEGORIES.length);
+        return productService.getProductsWithFilters(null, CATEGORIES[n], null, null, null, null,
+                PageRequest.of(50, PAGE_SIZE, Sort.by("name")));
+    }
+
+    @Benchmark
+    public KeysetPage<Product> filtersKeyset() {
+        int n = next(CATEGORIES.length);
+        return productService.getProductsAfter(null, null, CATEGORIES[n], null, null, null, null,
+                "name", Sort.Direction.ASC, PAGE_SIZE, null, false);
+    }
+
+    private int next(int bound) {
+        call = (call + 1) % bound;
+        return call;
+    }
+
+    private static Product newProduct(Random random, int i) {
+        String brand = BRANDS[random.nextInt(BRANDS.length)];
+        String name = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + brand + " "
+                + NOUNS[random.nextInt(NOUNS.length)] + " " + i;
+        Product product = new Product(name, "BENCH" + i, BigDecimal.valueOf(500 + random.nextInt(200_000), 2),
+                "Benchmark product with " + NOUNS[random.nextInt(NOUNS.length)].toLowerCase() + " accessories",
+                CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        product.setBrand(brand);
+        product.setStockQuantity(random.nextInt(50));
+        product.setInStock(product.getStockQuantity() > 0);
+        return product;
+    }
+}
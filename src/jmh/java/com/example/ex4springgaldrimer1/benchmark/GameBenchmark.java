@@ -0,0 +1,121 @@
+package com.example.ex4springgaldrimer1.benchmark;
+
+import com.example.ex4springgaldrimer1.entity.GameQuestion;
+import com.example.ex4springgaldrimer1.entity.User;
+import com.example.ex4springgaldrimer1.enums.QuestionType;
+import com.example.ex4springgaldrimer1.repository.GameQuestionRepository;
+import com.example.ex4springgaldrimer1.service.ActiveGame;
+import com.example.ex4springgaldrimer1.service.GameService;
+import com.example.ex4springgaldrimer1.service.QuestionPool;
+import com.example.ex4springgaldrimer1.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameService.getNextQuestion against a pool of poolSize generated questions. askAndAnswer is one round of play,
+ * a question picked and answered, with a new game started whenever one ends (every QUESTIONS_PER_GAME calls);
+ * pendingQuestion is a page reload while a question is unanswered; pickFromPool is the in-memory pick alone,
+ * with half the pool already asked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class GameBenchmark {
+
+    // The default game length
+    private static final int QUESTIONS_PER_GAME = 10;
+
+    @Param({"1000"})
+    public int poolSize;
+
+    private ConfigurableApplicationContext context;
+    private GameService gameService;
+    private QuestionPool questionPool;
+    private User player;
+
+    private ActiveGame game;
+    private ActiveGame pendingGame;
+    private boolean[] halfAsked;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("game");
+        gameService = context.getBean(GameService.class);
+        questionPool = context.getBean(QuestionPool.class);
+        player = context.getBean(UserService.class).findByUsername("john_doe").orElseThrow();
+
+        Random random = new Random(BenchmarkApplication.SEED);
+        QuestionType[] types = QuestionType.values();
+        List<GameQuestion> questions = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            GameQuestion question = new GameQuestion("Benchmark question " + i + "?", "A" + i, "B" + i, "C" + i, "D" + i,
+                    "ABCD".substring(i % 4, i % 4 + 1), types[random.nextInt(types.length)]);
+            question.setDifficultyLevel(1 + random.nextInt(3));
+            questions.add(question);
+        }
+        context.getBean(GameQuestionRepository.class).saveAll(questions);
+        // The pool was loaded at startup, before these questions existed
+        questionPool.rebuild();
+
+        game = newGame();
+
+        // A second player's game with a question on screen, reloaded but never answered
+        User other = context.getBean(UserService.class).findByUsername("jane_smith").orElseThrow();
+        pendingGame = gameService.getActiveGame(gameService.startNewGame(other, QUESTIONS_PER_GAME).getId());
+        gameService.getNextQuestion(pendingGame);
+
+        halfAsked = new boolean[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            halfAsked[i] = random.nextBoolean();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public GameQuestion askAndAnswer() {
+        GameQuestion question = gameService.getNextQuestion(game);
+        if (question == null
+                || gameService.submitAnswer(game, question.getId(), question.getCorrectAnswer()).isGameOver()) {
+            game = newGame();
+        }
+        return question;
+    }
+
+    @Benchmark
+    public GameQuestion pendingQuestion() {
+        return gameService.getNextQuestion(pendingGame);
+    }
+
+    @Benchmark
+    public Long pickFromPool() {
+        return questionPool.pickRandom(id -> halfAsked[(int) (id % halfAsked.length)]);
+    }
+
+    private ActiveGame newGame() {
+        return gameService.getActiveGame(gameService.startNewGame(player, QUESTIONS_PER_GAME).getId());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.ex4springgaldrimer1.benchmark;
+
+import com.example.ex4springgaldrimer1.entity.QuestionIdSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asked question ids of a game session: decoding the stored BLOB, encoding it for the write-behind,
+ * parsing the legacy comma-separated column, and the membership check made for every question picked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class QuestionIdSetBenchmark {
+
+    // Questions asked so far in the session
+    @Param({"10", "100", "1000"})
+    public int asked;
+
+    private QuestionIdSet set;
+    private byte[] encoded;
+    private String legacy;
+
+    // Power-of-two ring of ids to look up, about half of them asked
+    private long[] probes;
+    private int probe;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(BenchmarkApplication.SEED);
+        set = new QuestionIdSet();
+        StringJoiner csv = new StringJoiner(",");
+        while (set.size() < asked) {
+            long id = 1 + random.nextInt(asked * 4);
+            if (set.add(id)) {
+                csv.add(Long.toString(id));
+            }
+        }
+        encoded = set.encode();
+        legacy = csv.toString();
+
+        long[] ids = set.toArray();
+        probes = new long[1024];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = random.nextBoolean() ? ids[random.nextInt(ids.length)] : 1 + random.nextInt(asked * 4);
+        }
+    }
+
+    @Benchmark
+    public QuestionIdSet decode() {
+        return QuestionIdSet.decode(encoded);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return set.encode();
+    }
+
+    @Benchmark
+    public QuestionIdSet parseLegacy() {
+        return QuestionIdSet.parseLegacy(legacy);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return set.contains(probes[probe++ & (probes.length - 1)]);
+    }
+}
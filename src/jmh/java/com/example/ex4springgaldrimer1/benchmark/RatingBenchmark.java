@@ -0,0 +1,102 @@
+package com.example.ex4springgaldrimer1.benchmark;
+
+import com.example.ex4springgaldrimer1.entity.Product;
+import com.example.ex4springgaldrimer1.entity.ProductComment;
+import com.example.ex4springgaldrimer1.entity.StoreComment;
+import com.example.ex4springgaldrimer1.enums.CommentStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rating figures for a product or store with many reviews. Product.getAverageRating reads the approved review
+ * aggregates, so it should stay flat as the review count grows; averageFromComments is the walk over the
+ * comment list it replaced, kept as the reference. StoreComment.getAverageSubRating is the per-review
+ * service/cleanliness/location average, summed here over a store's reviews as a detailed store rating.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class RatingBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int reviews;
+
+    private Product product;
+    private List<ProductComment> productComments;
+    private List<StoreComment> storeComments;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(BenchmarkApplication.SEED);
+        product = new Product();
+        productComments = new ArrayList<>(reviews);
+        storeComments = new ArrayList<>(reviews);
+
+        int approved = 0;
+        int ratingSum = 0;
+        for (int i = 0; i < reviews; i++) {
+            int rating = 1 + random.nextInt(5);
+            ProductComment comment = new ProductComment("Benchmark review", rating, null, product);
+            // Most reviews are approved, the rest wait for moderation or were rejected
+            comment.setStatus(random.nextInt(10) < 8 ? CommentStatus.APPROVED
+                    : random.nextBoolean() ? CommentStatus.PENDING : CommentStatus.REJECTED);
+            if (comment.getStatus() == CommentStatus.APPROVED) {
+                approved++;
+                ratingSum += rating;
+            }
+            productComments.add(comment);
+
+            StoreComment storeComment = new StoreComment("Benchmark review", rating, null, null);
+            storeComment.setServiceRating(random.nextInt(4) > 0 ? 1 + random.nextInt(5) : null);
+            storeComment.setCleanlinessRating(random.nextInt(4) > 0 ? 1 + random.nextInt(5) : null);
+            storeComment.setLocationRating(random.nextInt(4) > 0 ? 1 + random.nextInt(5) : null);
+            storeComments.add(storeComment);
+        }
+        product.setApprovedReviewCount(approved);
+        product.setRatingSum(ratingSum);
+    }
+
+    @Benchmark
+    public double averageRating() {
+        return product.getAverageRating();
+    }
+
+    @Benchmark
+    public double averageFromComments() {
+        int count = 0;
+        int sum = 0;
+        for (ProductComment comment : productComments) {
+            if (comment.getStatus() == CommentStatus.APPROVED) {
+                sum += comment.getRating();
+                count++;
+            }
+        }
+        return count > 0 ? (double) sum / count : 0.0;
+    }
+
+    @Benchmark
+    public double storeDetailedRating() {
+        double sum = 0;
+        for (StoreComment comment : storeComments) {
+            sum += comment.getAverageSubRating();
+        }
+        return storeComments.isEmpty() ? 0.0 : sum / storeComments.size();
+    }
+}
@@ -2,8 +2,11 @@ package com.example.ex4springgaldrimer1;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableAsync;
 
+// @Async methods run on Spring Boot's applicationTaskExecutor (virtual threads in the virtual-threads profile)
 @SpringBootApplication
+@EnableAsync
 public class Ex4SpringGalDrimer1Application {
 
     public static void main(String[] args) {
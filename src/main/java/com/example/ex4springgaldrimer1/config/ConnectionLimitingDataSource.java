@@ -0,0 +1,140 @@
+package com.example.ex4springgaldrimer1.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets at most a fixed number of threads hold a connection at once, sized to the connection pool, so thousands
+ * of virtual threads queue here in arrival order instead of all waiting inside the pool. The wait is bounded
+ * in time and in the number of waiting threads; past either limit getConnection fails fast with
+ * SQLTransientConnectionException, as the pool itself does on timeout. A permit is returned when the
+ * connection is closed.
+ */
+public class ConnectionLimitingDataSource extends DelegatingDataSource {
+
+    private final int permits;
+    private final int maxWaiting;
+    private final long waitMillis;
+    private final Semaphore semaphore;
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ConnectionLimitingDataSource(DataSource target, int permits, int maxWaiting, long waitMillis) {
+        super(target);
+        this.permits = permits;
+        this.maxWaiting = maxWaiting;
+        this.waitMillis = waitMillis;
+        this.semaphore = new Semaphore(permits, true);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return limited(obtainTargetDataSource().getConnection());
+        } catch (SQLException | RuntimeException e) {
+            semaphore.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return limited(obtainTargetDataSource().getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            semaphore.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        if (semaphore.getQueueLength() >= maxWaiting) {
+            rejected.incrementAndGet();
+            throw new SQLTransientConnectionException("Connection limiter is full: " + maxWaiting
+                    + " threads already waiting for one of " + permits + " connections");
+        }
+        try {
+            if (!semaphore.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+                rejected.incrementAndGet();
+                throw new SQLTransientConnectionException("Connection not available, waited " + waitMillis
+                        + " ms for one of " + permits + " connections");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        }
+        acquired.incrementAndGet();
+    }
+
+    // The permit goes back on the first close; everything else is passed through
+    private Connection limited(Connection connection) {
+        AtomicBoolean closed = new AtomicBoolean();
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        try {
+                            connection.close();
+                        } finally {
+                            semaphore.release();
+                        }
+                    }
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Limited " + connection;
+                default:
+                    return invoke(connection, method, args);
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static Object invoke(Connection connection, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    // Metrics
+    public int getPermits() {
+        return permits;
+    }
+
+    public int getInUse() {
+        return permits - semaphore.availablePermits();
+    }
+
+    public int getWaiting() {
+        return semaphore.getQueueLength();
+    }
+
+    public long getAcquired() {
+        return acquired.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
@@ -10,6 +10,10 @@ import com.example.ex4springgaldrimer1.repository.GameQuestionRepository;
 import com.example.ex4springgaldrimer1.repository.ProductRepository;
 import com.example.ex4springgaldrimer1.repository.StoreRepository;
 import com.example.ex4springgaldrimer1.repository.UserRepository;
+import com.example.ex4springgaldrimer1.service.ProductService;
+import com.example.ex4springgaldrimer1.service.StoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Lazy;
@@ -17,10 +21,14 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class DataInitializer implements CommandLineRunner {
 
+    private static final Logger log = LoggerFactory.getLogger(DataInitializer.class);
+
     @Autowired
     private UserRepository userRepository;
 
@@ -33,6 +41,12 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired
     private GameQuestionRepository gameQuestionRepository;
 
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StoreService storeService;
+
     @Autowired
     @Lazy
     private PasswordEncoder passwordEncoder;
@@ -55,16 +69,23 @@ public class DataInitializer implements CommandLineRunner {
         if (gameQuestionRepository.count() == 0) {
             initializeGameQuestions();
         }
+
+        // Backfill review aggregates for rows written before the aggregate columns existed;
+        // a no-op once the totals match the approved comments
+        productService.recalculateRatingAggregatesIfStale();
+        storeService.recalculateRatingAggregatesIfStale();
     }
 
     private void initializeUsers() {
+        List<User> users = new ArrayList<>();
+
         // Create admin user
         User admin = new User();
         admin.setUsername("admin");
         admin.setEmail("admin@chainstore.com");
         admin.setPassword(passwordEncoder.encode("admin123"));
         admin.setRole(Role.ADMIN);
-        userRepository.save(admin);
+        users.add(admin);
 
         // Create sample customer users
         User customer1 = new User();
@@ -74,7 +95,7 @@ public class DataInitializer implements CommandLineRunner {
         customer1.setRole(Role.CUSTOMER);
         customer1.setCustomerPoints(150);
         customer1.setHighestGameScore(85);
-        userRepository.save(customer1);
+        users.add(customer1);
 
         User customer2 = new User();
         customer2.setUsername("jane_smith");
@@ -83,7 +104,7 @@ public class DataInitializer implements CommandLineRunner {
         customer2.setRole(Role.CUSTOMER);
         customer2.setCustomerPoints(230);
         customer2.setHighestGameScore(120);
-        userRepository.save(customer2);
+        users.add(customer2);
 
         User customer3 = new User();
         customer3.setUsername("mike_wilson");
@@ -92,16 +113,16 @@ public class DataInitializer implements CommandLineRunner {
         customer3.setRole(Role.CUSTOMER);
         customer3.setCustomerPoints(95);
         customer3.setHighestGameScore(67);
-        userRepository.save(customer3);
+        users.add(customer3);
 
-        System.out.println("Sample users created:");
-        System.out.println("Admin: admin / admin123");
-        System.out.println("Customer: john_doe / password123");
-        System.out.println("Customer: jane_smith / password123");
-        System.out.println("Customer: mike_wilson / password123");
+        userRepository.saveAll(users);
+
+        log.info("Sample users created: admin / admin123, customers john_doe, jane_smith and mike_wilson / password123");
     }
 
     private void initializeProducts() {
+        List<Product> products = new ArrayList<>();
+
         // Electronics Category
         Product laptop = new Product();
         laptop.setName("Dell XPS 13 Laptop");
@@ -112,7 +133,7 @@ public class DataInitializer implements CommandLineRunner {
         laptop.setBrand("Dell");
         laptop.setStockQuantity(25);
         laptop.setWeight(1.2);
-        productRepository.save(laptop);
+        products.add(laptop);
 
         Product smartphone = new Product();
         smartphone.setName("Samsung Galaxy S23");
@@ -123,7 +144,7 @@ public class DataInitializer implements CommandLineRunner {
         smartphone.setBrand("Samsung");
         smartphone.setStockQuantity(40);
         smartphone.setWeight(0.2);
-        productRepository.save(smartphone);
+        products.add(smartphone);
 
         Product headphones = new Product();
         headphones.setName("Sony WH-1000XM4 Headphones");
@@ -134,7 +155,7 @@ public class DataInitializer implements CommandLineRunner {
         headphones.setBrand("Sony");
         headphones.setStockQuantity(30);
         headphones.setWeight(0.25);
-        productRepository.save(headphones);
+        products.add(headphones);
 
         // Home & Garden Category
         Product coffeemaker = new Product();
@@ -146,7 +167,7 @@ public class DataInitializer implements CommandLineRunner {
         coffeemaker.setBrand("Keurig");
         coffeemaker.setStockQuantity(20);
         coffeemaker.setWeight(3.5);
-        productRepository.save(coffeemaker);
+        products.add(coffeemaker);
 
         Product vacuum = new Product();
         vacuum.setName("Dyson V15 Detect Vacuum");
@@ -157,7 +178,7 @@ public class DataInitializer implements CommandLineRunner {
         vacuum.setBrand("Dyson");
         vacuum.setStockQuantity(15);
         vacuum.setWeight(2.8);
-        productRepository.save(vacuum);
+        products.add(vacuum);
 
         // Clothing Category
         Product jeans = new Product();
@@ -169,7 +190,7 @@ public class DataInitializer implements CommandLineRunner {
         jeans.setBrand("Levi's");
         jeans.setStockQuantity(50);
         jeans.setWeight(0.6);
-        productRepository.save(jeans);
+        products.add(jeans);
 
         Product jacket = new Product();
         jacket.setName("North Face Puffer Jacket");
@@ -180,7 +201,7 @@ public class DataInitializer implements CommandLineRunner {
         jacket.setBrand("The North Face");
         jacket.setStockQuantity(35);
         jacket.setWeight(0.8);
-        productRepository.save(jacket);
+        products.add(jacket);
 
         // Sports & Outdoors Category
         Product bike = new Product();
@@ -192,7 +213,7 @@ public class DataInitializer implements CommandLineRunner {
         bike.setBrand("Trek");
         bike.setStockQuantity(12);
         bike.setWeight(13.5);
-        productRepository.save(bike);
+        products.add(bike);
 
         Product tent = new Product();
         tent.setName("Coleman 4-Person Tent");
@@ -203,7 +224,7 @@ public class DataInitializer implements CommandLineRunner {
         tent.setBrand("Coleman");
         tent.setStockQuantity(18);
         tent.setWeight(5.2);
-        productRepository.save(tent);
+        products.add(tent);
 
         // Books Category
         Product book1 = new Product();
@@ -215,7 +236,7 @@ public class DataInitializer implements CommandLineRunner {
         book1.setBrand("Programming Press");
         book1.setStockQuantity(25);
         book1.setWeight(0.4);
-        productRepository.save(book1);
+        products.add(book1);
 
         Product book2 = new Product();
         book2.setName("Clean Code: A Handbook");
@@ -226,14 +247,20 @@ public class DataInitializer implements CommandLineRunner {
         book2.setBrand("Programming Press");
         book2.setStockQuantity(30);
         book2.setWeight(0.5);
-        productRepository.save(book2);
+        products.add(book2);
 
-        System.out.println("Sample products created:");
-        System.out.println("- " + productRepository.count() + " products in " + productRepository.findAllCategories().size() + " categories");
-        System.out.println("- Categories: " + String.join(", ", productRepository.findAllCategories()));
+        productRepository.saveAll(products);
+
+        if (log.isInfoEnabled()) {
+            List<String> categories = productRepository.findAllCategories();
+            log.info("Sample products created: {} products in {} categories ({})",
+                    productRepository.count(), categories.size(), String.join(", ", categories));
+        }
     }
 
     private void initializeStores() {
+        List<Store> stores = new ArrayList<>();
+
         // Store 1 - New York
         Store store1 = new Store();
         store1.setName("Chain Store Manhattan");
@@ -250,7 +277,7 @@ public class DataInitializer implements CommandLineRunner {
         store1.setStoreSizeSqft(15000);
         store1.setParkingAvailable(false); // Manhattan - no parking
         store1.setDriveThrough(false);
-        storeRepository.save(store1);
+        stores.add(store1);
 
         // Store 2 - Los Angeles
         Store store2 = new Store();
@@ -268,7 +295,7 @@ public class DataInitializer implements CommandLineRunner {
         store2.setStoreSizeSqft(12000);
         store2.setParkingAvailable(true);
         store2.setDriveThrough(false);
-        storeRepository.save(store2);
+        stores.add(store2);
 
         // Store 3 - Chicago
         Store store3 = new Store();
@@ -286,7 +313,7 @@ public class DataInitializer implements CommandLineRunner {
         store3.setStoreSizeSqft(18000);
         store3.setParkingAvailable(true);
         store3.setDriveThrough(true);
-        storeRepository.save(store3);
+        stores.add(store3);
 
         // Store 4 - Miami
         Store store4 = new Store();
@@ -304,7 +331,7 @@ public class DataInitializer implements CommandLineRunner {
         store4.setStoreSizeSqft(10000);
         store4.setParkingAvailable(true);
         store4.setDriveThrough(false);
-        storeRepository.save(store4);
+        stores.add(store4);
 
         // Store 5 - Dallas
         Store store5 = new Store();
@@ -322,7 +349,7 @@ public class DataInitializer implements CommandLineRunner {
         store5.setStoreSizeSqft(22000);
         store5.setParkingAvailable(true);
         store5.setDriveThrough(true);
-        storeRepository.save(store5);
+        stores.add(store5);
 
         // Store 6 - Seattle
         Store store6 = new Store();
@@ -340,7 +367,7 @@ public class DataInitializer implements CommandLineRunner {
         store6.setStoreSizeSqft(8000);
         store6.setParkingAvailable(false); // Downtown Seattle
         store6.setDriveThrough(false);
-        storeRepository.save(store6);
+        stores.add(store6);
 
         // Store 7 - Denver
         Store store7 = new Store();
@@ -358,7 +385,7 @@ public class DataInitializer implements CommandLineRunner {
         store7.setStoreSizeSqft(14000);
         store7.setParkingAvailable(true);
         store7.setDriveThrough(true);
-        storeRepository.save(store7);
+        stores.add(store7);
 
         // Store 8 - Atlanta (Temporarily Closed)
         Store store8 = new Store();
@@ -377,15 +404,20 @@ public class DataInitializer implements CommandLineRunner {
         store8.setParkingAvailable(true);
         store8.setDriveThrough(false);
         store8.setIsActive(false); // Temporarily closed
-        storeRepository.save(store8);
+        stores.add(store8);
+
+        storeRepository.saveAll(stores);
 
-        System.out.println("Sample stores created:");
-        System.out.println("- " + storeRepository.count() + " stores in " + storeRepository.findAllActiveCities().size() + " cities");
-        System.out.println("- Active stores: " + storeRepository.countByIsActive(true));
-        System.out.println("- Cities: " + String.join(", ", storeRepository.findAllActiveCities()));
+        if (log.isInfoEnabled()) {
+            List<String> cities = storeRepository.findAllActiveCities();
+            log.info("Sample stores created: {} stores ({} active) in {} cities ({})", storeRepository.count(),
+                    storeRepository.countByIsActive(true), cities.size(), String.join(", ", cities));
+        }
     }
 
     private void initializeGameQuestions() {
+        List<GameQuestion> questions = new ArrayList<>();
+
         // Product Knowledge Questions
         GameQuestion q1 = new GameQuestion();
         q1.setQuestionText("Which brand offers the Dell XPS 13 Laptop in our store?");
@@ -398,7 +430,7 @@ public class DataInitializer implements CommandLineRunner {
         q1.setPoints(10);
         q1.setDifficultyLevel(1);
         q1.setExplanation("The Dell XPS 13 is manufactured by Dell, known for their business and consumer laptops.");
-        gameQuestionRepository.save(q1);
+        questions.add(q1);
 
         GameQuestion q2 = new GameQuestion();
         q2.setQuestionText("What is the price range of the Samsung Galaxy S23 in our catalog?");
@@ -411,7 +443,7 @@ public class DataInitializer implements CommandLineRunner {
         q2.setPoints(15);
         q2.setDifficultyLevel(2);
         q2.setExplanation("The Samsung Galaxy S23 is priced at $699.99 in our current catalog.");
-        gameQuestionRepository.save(q2);
+        questions.add(q2);
 
         GameQuestion q3 = new GameQuestion();
         q3.setQuestionText("Which category does the Dyson V15 Detect belong to?");
@@ -424,7 +456,7 @@ public class DataInitializer implements CommandLineRunner {
         q3.setPoints(10);
         q3.setDifficultyLevel(1);
         q3.setExplanation("The Dyson V15 Detect is a vacuum cleaner, which falls under the Home & Garden category.");
-        gameQuestionRepository.save(q3);
+        questions.add(q3);
 
         GameQuestion q4 = new GameQuestion();
         q4.setQuestionText("What is the weight of the Trek Mountain Bike?");
@@ -437,7 +469,7 @@ public class DataInitializer implements CommandLineRunner {
         q4.setPoints(20);
         q4.setDifficultyLevel(3);
         q4.setExplanation("The Trek Mountain Bike weighs 13.5 kg, making it a sturdy yet manageable mountain bike.");
-        gameQuestionRepository.save(q4);
+        questions.add(q4);
 
         // Store Information Questions
         GameQuestion q5 = new GameQuestion();
@@ -451,7 +483,7 @@ public class DataInitializer implements CommandLineRunner {
         q5.setPoints(10);
         q5.setDifficultyLevel(1);
         q5.setExplanation("Our flagship Manhattan store is located at 123 Broadway Street in New York.");
-        gameQuestionRepository.save(q5);
+        questions.add(q5);
 
         GameQuestion q6 = new GameQuestion();
         q6.setQuestionText("Which store manager runs the Beverly Hills location?");
@@ -464,7 +496,7 @@ public class DataInitializer implements CommandLineRunner {
         q6.setPoints(15);
         q6.setDifficultyLevel(2);
         q6.setExplanation("Carlos Rodriguez is the store manager at our Beverly Hills location on Rodeo Drive.");
-        gameQuestionRepository.save(q6);
+        questions.add(q6);
 
         GameQuestion q7 = new GameQuestion();
         q7.setQuestionText("Which Chain Store location has both parking and drive-through services?");
@@ -477,7 +509,7 @@ public class DataInitializer implements CommandLineRunner {
         q7.setPoints(15);
         q7.setDifficultyLevel(2);
         q7.setExplanation("Our Downtown Chicago store offers both parking and drive-through convenience for customers.");
-        gameQuestionRepository.save(q7);
+        questions.add(q7);
 
         GameQuestion q8 = new GameQuestion();
         q8.setQuestionText("What is the store size of our Dallas Central location?");
@@ -490,7 +522,7 @@ public class DataInitializer implements CommandLineRunner {
         q8.setPoints(20);
         q8.setDifficultyLevel(3);
         q8.setExplanation("Dallas Central is our largest store at 22,000 square feet, serving the Dallas metroplex.");
-        gameQuestionRepository.save(q8);
+        questions.add(q8);
 
         GameQuestion q9 = new GameQuestion();
         q9.setQuestionText("Which store is currently closed for renovation?");
@@ -503,7 +535,7 @@ public class DataInitializer implements CommandLineRunner {
         q9.setPoints(10);
         q9.setDifficultyLevel(1);
         q9.setExplanation("Our Buckhead Atlanta location is temporarily closed for major renovation and expansion.");
-        gameQuestionRepository.save(q9);
+        questions.add(q9);
 
         // General Chain Store Knowledge
         GameQuestion q10 = new GameQuestion();
@@ -517,7 +549,7 @@ public class DataInitializer implements CommandLineRunner {
         q10.setPoints(10);
         q10.setDifficultyLevel(1);
         q10.setExplanation("You earn 20 base points for completing a game, plus accuracy bonuses!");
-        gameQuestionRepository.save(q10);
+        questions.add(q10);
 
         GameQuestion q11 = new GameQuestion();
         q11.setQuestionText("What technology stack does our website use?");
@@ -530,7 +562,7 @@ public class DataInitializer implements CommandLineRunner {
         q11.setPoints(15);
         q11.setDifficultyLevel(2);
         q11.setExplanation("Our website is built with Spring Boot MVC and Thymeleaf for server-side rendering.");
-        gameQuestionRepository.save(q11);
+        questions.add(q11);
 
         GameQuestion q12 = new GameQuestion();
         q12.setQuestionText("In how many cities do we currently have active stores?");
@@ -543,7 +575,7 @@ public class DataInitializer implements CommandLineRunner {
         q12.setPoints(15);
         q12.setDifficultyLevel(2);
         q12.setExplanation("We have active stores in 7 cities: NYC, LA, Chicago, Miami, Dallas, Seattle, and Denver.");
-        gameQuestionRepository.save(q12);
+        questions.add(q12);
 
         GameQuestion q13 = new GameQuestion();
         q13.setQuestionText("What are the two main types of users in our system?");
@@ -556,7 +588,7 @@ public class DataInitializer implements CommandLineRunner {
         q13.setPoints(10);
         q13.setDifficultyLevel(1);
         q13.setExplanation("Our system has two main user roles: Customers who shop and play games, and Admins who manage the system.");
-        gameQuestionRepository.save(q13);
+        questions.add(q13);
 
         GameQuestion q14 = new GameQuestion();
         q14.setQuestionText("Which feature allows customers to share their shopping experience?");
@@ -569,7 +601,7 @@ public class DataInitializer implements CommandLineRunner {
         q14.setPoints(10);
         q14.setDifficultyLevel(1);
         q14.setExplanation("Customers can write detailed product and store reviews to share their experiences with other shoppers.");
-        gameQuestionRepository.save(q14);
+        questions.add(q14);
 
         GameQuestion q15 = new GameQuestion();
         q15.setQuestionText("What is the minimum number of questions needed to start a loyalty game?");
@@ -582,7 +614,7 @@ public class DataInitializer implements CommandLineRunner {
         q15.setPoints(20);
         q15.setDifficultyLevel(3);
         q15.setExplanation("The system requires at least 5 active questions in the database to allow customers to start a new game.");
-        gameQuestionRepository.save(q15);
+        questions.add(q15);
 
         // Additional questions for variety
         GameQuestion q16 = new GameQuestion();
@@ -596,7 +628,7 @@ public class DataInitializer implements CommandLineRunner {
         q16.setPoints(15);
         q16.setDifficultyLevel(2);
         q16.setExplanation("Electronics category contains the Dell XPS 13 Laptop at $999.99, our most expensive single item.");
-        gameQuestionRepository.save(q16);
+        questions.add(q16);
 
         GameQuestion q17 = new GameQuestion();
         q17.setQuestionText("What time does our Manhattan store open?");
@@ -609,7 +641,7 @@ public class DataInitializer implements CommandLineRunner {
         q17.setPoints(10);
         q17.setDifficultyLevel(1);
         q17.setExplanation("Our Manhattan flagship store opens at 8:00 AM to serve early commuters.");
-        gameQuestionRepository.save(q17);
+        questions.add(q17);
 
         GameQuestion q18 = new GameQuestion();
         q18.setQuestionText("What happens to your customer points when you write a product review?");
@@ -622,7 +654,7 @@ public class DataInitializer implements CommandLineRunner {
         q18.setPoints(15);
         q18.setDifficultyLevel(2);
         q18.setExplanation("Writing a product or store review earns you 10 customer loyalty points!");
-        gameQuestionRepository.save(q18);
+        questions.add(q18);
 
         GameQuestion q19 = new GameQuestion();
         q19.setQuestionText("Which store has the largest floor space?");
@@ -635,7 +667,7 @@ public class DataInitializer implements CommandLineRunner {
         q19.setPoints(15);
         q19.setDifficultyLevel(2);
         q19.setExplanation("Dallas Central has 22,000 sq ft, making it our largest store location.");
-        gameQuestionRepository.save(q19);
+        questions.add(q19);
 
         GameQuestion q20 = new GameQuestion();
         q20.setQuestionText("What is the brand of our camping tent product?");
@@ -648,12 +680,16 @@ public class DataInitializer implements CommandLineRunner {
         q20.setPoints(10);
         q20.setDifficultyLevel(1);
         q20.setExplanation("We carry the Coleman 4-Person Tent in our Sports & Outdoors section.");
-        gameQuestionRepository.save(q20);
+        questions.add(q20);
 
-        System.out.println("Sample game questions created:");
-        System.out.println("- " + gameQuestionRepository.count() + " total questions");
-        System.out.println("- " + gameQuestionRepository.countByQuestionTypeAndIsActive(QuestionType.PRODUCT, true) + " product questions");
-        System.out.println("- " + gameQuestionRepository.countByQuestionTypeAndIsActive(QuestionType.STORE, true) + " store questions");
-        System.out.println("- " + gameQuestionRepository.countByQuestionTypeAndIsActive(QuestionType.GENERAL, true) + " general questions");
+        gameQuestionRepository.saveAll(questions);
+
+        if (log.isInfoEnabled()) {
+            log.info("Sample game questions created: {} total, {} product, {} store, {} general",
+                    gameQuestionRepository.count(),
+                    gameQuestionRepository.countByQuestionTypeAndIsActive(QuestionType.PRODUCT, true),
+                    gameQuestionRepository.countByQuestionTypeAndIsActive(QuestionType.STORE, true),
+                    gameQuestionRepository.countByQuestionTypeAndIsActive(QuestionType.GENERAL, true));
+        }
     }
 }
\ No newline at end of file
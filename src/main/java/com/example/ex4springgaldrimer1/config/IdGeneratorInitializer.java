@@ -0,0 +1,67 @@
+package com.example.ex4springgaldrimer1.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.metamodel.EntityType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+/**
+ * Moves every id generator row in id_generators past the highest id already in its table.
+ * Tables created while ids came from AUTO_INCREMENT already hold rows, and a new generator row would
+ * hand out their ids again. Runs once at startup, after the schema update and before any insert.
+ */
+@Component
+public class IdGeneratorInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(IdGeneratorInitializer.class);
+
+    // Column names Hibernate uses for a @TableGenerator that does not name them
+    private static final String GENERATOR_TABLE = "id_generators";
+    private static final String SEGMENT_COLUMN = "sequence_name";
+    private static final String VALUE_COLUMN = "next_val";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void alignGenerators() {
+        for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+            Class<?> type = entity.getJavaType();
+            Table table = type.getAnnotation(Table.class);
+            for (Field field : type.getDeclaredFields()) {
+                TableGenerator generator = field.getAnnotation(TableGenerator.class);
+                if (generator != null && table != null && GENERATOR_TABLE.equals(generator.table())) {
+                    align(generator.pkColumnValue(), table.name(), field.getName());
+                }
+            }
+        }
+    }
+
+    // The generator row holds the last id handed out, so the next block starts above it
+    private void align(String segment, String table, String idColumn) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(" + idColumn + "), 0) FROM " + table, Long.class);
+        List<Long> current = jdbcTemplate.queryForList(
+                "SELECT " + VALUE_COLUMN + " FROM " + GENERATOR_TABLE + " WHERE " + SEGMENT_COLUMN + " = ?", Long.class, segment);
+
+        if (current.isEmpty()) {
+            jdbcTemplate.update("INSERT INTO " + GENERATOR_TABLE + " (" + SEGMENT_COLUMN + ", " + VALUE_COLUMN + ") VALUES (?, ?)",
+                    segment, maxId);
+        } else if (current.get(0) == null || current.get(0) < maxId) {
+            jdbcTemplate.update("UPDATE " + GENERATOR_TABLE + " SET " + VALUE_COLUMN + " = ? WHERE " + SEGMENT_COLUMN + " = ?",
+                    maxId, segment);
+            log.info("Id generator for {} moved past existing id {}", table, maxId);
+        }
+    }
+}
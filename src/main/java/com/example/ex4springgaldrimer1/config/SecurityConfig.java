@@ -1,32 +1,63 @@
 package com.example.ex4springgaldrimer1.config;
 
+import com.example.ex4springgaldrimer1.security.AppUserDetails;
+import com.example.ex4springgaldrimer1.security.BoundedUserCache;
+import com.example.ex4springgaldrimer1.security.PasswordHashingBusyException;
+import com.example.ex4springgaldrimer1.security.PooledPasswordEncoder;
 import com.example.ex4springgaldrimer1.service.UserService;
 import com.example.ex4springgaldrimer1.service.GameService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.ExceptionMappingAuthenticationFailureHandler;
 import org.springframework.security.web.authentication.logout.LogoutHandler;
 
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
+    // BCrypt with a cost calibrated at startup (unless fixed), hashing on a bounded pool
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PooledPasswordEncoder passwordEncoder(@Value("${app.password.bcrypt-cost:0}") int fixedCost,
+                                                 @Value("${app.password.target-hash-millis:250}") long targetMillis,
+                                                 @Value("${app.password.min-cost:10}") int minCost,
+                                                 @Value("${app.password.max-cost:16}") int maxCost,
+                                                 @Value("${app.password.hash-threads:0}") int threads,
+                                                 @Value("${app.password.hash-queue-capacity:100}") int queueCapacity) {
+        int cost = fixedCost > 0 ? fixedCost : PooledPasswordEncoder.calibrateCost(targetMillis, minCost, maxCost);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new PooledPasswordEncoder(cost, poolSize, queueCapacity);
     }
 
+    // Users recently loaded for login; UserService evicts an account whenever its credentials or status change
     @Bean
-    public DaoAuthenticationProvider authenticationProvider(@Lazy UserService userService, PasswordEncoder passwordEncoder) {
+    public UserCache userCache(@Value("${app.user-cache.max-size:1000}") int maxSize,
+                               @Value("${app.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        return new BoundedUserCache(maxSize, ttlSeconds);
+    }
+
+    @Bean
+    public DaoAuthenticationProvider authenticationProvider(@Lazy UserService userService, PasswordEncoder passwordEncoder,
+                                                            UserCache userCache) {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
         provider.setUserDetailsService(userService);
         provider.setPasswordEncoder(passwordEncoder);
+        provider.setUserCache(userCache);
+        provider.setUserDetailsPasswordService(userService); // re-hash weaker passwords on login
         return provider;
     }
 
@@ -36,22 +67,35 @@ public class SecurityConfig {
         return (request, response, authentication) -> {
             if (authentication != null && authentication.isAuthenticated()) {
                 try {
-                    // Get the current user
-                    String username = authentication.getName();
-                    var user = userService.findByUsername(username);
+                    if (authentication.getPrincipal() instanceof AppUserDetails principal) {
+                        // The principal already knows the user id, no need to load the user
+                        gameService.endActiveGameOnLogout(principal.getId(), principal.getUsername());
+                    } else {
+                        // Get the current user
+                        String username = authentication.getName();
+                        var user = userService.findByUsername(username);
 
-                    if (user.isPresent()) {
-                        // End any active game sessions with zero points
-                        gameService.endActiveGameOnLogout(user.get());
+                        if (user.isPresent()) {
+                            // End any active game sessions with zero points
+                            gameService.endActiveGameOnLogout(user.get());
+                        }
                     }
                 } catch (Exception e) {
                     // Log the error but don't prevent logout
-                    System.err.println("Error ending game session on logout: " + e.getMessage());
+                    log.error("Error ending game session on logout", e);
                 }
             }
         };
     }
 
+    // Bad credentials go back to the login form with an error; a full hashing pool asks the user to retry
+    private AuthenticationFailureHandler loginFailureHandler() {
+        ExceptionMappingAuthenticationFailureHandler handler = new ExceptionMappingAuthenticationFailureHandler();
+        handler.setDefaultFailureUrl("/login?error=true");
+        handler.setExceptionMappings(Map.of(PasswordHashingBusyException.class.getName(), "/login?busy=true"));
+        return handler;
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http, DaoAuthenticationProvider authenticationProvider,
                                            LogoutHandler gameSessionLogoutHandler) throws Exception {
@@ -82,7 +126,7 @@ public class SecurityConfig {
                 .formLogin(form -> form
                         .loginPage("/login")
                         .defaultSuccessUrl("/?login=success", true)
-                        .failureUrl("/login?error=true")
+                        .failureHandler(loginFailureHandler())
                         .permitAll()
                 )
                 .logout(logout -> logout
@@ -0,0 +1,49 @@
+package com.example.ex4springgaldrimer1.config;
+
+import com.example.ex4springgaldrimer1.logging.VirtualThreadPinningMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Virtual-thread mode, active with spring.threads.virtual.enabled=true on Java 21+ (the virtual-threads profile)
+ * and ignored otherwise. Spring Boot then serves Tomcat requests and runs the application task executor on
+ * virtual threads; this adds a connection limiter in front of the Hikari pool, since request concurrency is
+ * no longer capped by the Tomcat thread pool, and reports virtual threads pinned by synchronized code.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    // Static, so the data source is wrapped however early it is created
+    @Bean
+    public static BeanPostProcessor connectionLimiter(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource hikari)) {
+                    return bean;
+                }
+                // 0 means: as many permits as the pool has connections, and the pool's own timeout
+                int permits = environment.getProperty("app.virtual-threads.connection-permits", Integer.class, 0);
+                long waitMillis = environment.getProperty("app.virtual-threads.connection-wait-millis", Long.class, 0L);
+                int maxWaiting = environment.getProperty("app.virtual-threads.connection-max-waiting", Integer.class, 1000);
+                return new ConnectionLimitingDataSource(hikari,
+                        permits > 0 ? permits : hikari.getMaximumPoolSize(),
+                        maxWaiting,
+                        waitMillis > 0 ? waitMillis : hikari.getConnectionTimeout());
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.virtual-threads.pinning.enabled", havingValue = "true", matchIfMissing = true)
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor() {
+        return new VirtualThreadPinningMonitor();
+    }
+}
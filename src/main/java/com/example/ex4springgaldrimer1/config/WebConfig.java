@@ -0,0 +1,29 @@
+package com.example.ex4springgaldrimer1.config;
+
+import com.example.ex4springgaldrimer1.service.FragmentCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private FragmentCache fragmentCache;
+
+    // Fragment cache generations as of the start of the request, before the controller reads any data
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                request.setAttribute(FragmentCache.SNAPSHOT_ATTRIBUTE, fragmentCache.snapshot());
+                return true;
+            }
+        });
+    }
+}
@@ -4,8 +4,18 @@ import com.example.ex4springgaldrimer1.entity.*;
 import com.example.ex4springgaldrimer1.enums.CommentStatus;
 import com.example.ex4springgaldrimer1.enums.QuestionType;
 import com.example.ex4springgaldrimer1.enums.Role;
+import com.example.ex4springgaldrimer1.pagination.KeysetPage;
+import com.example.ex4springgaldrimer1.projection.ReviewView;
+import com.example.ex4springgaldrimer1.projection.StoreReviewView;
+import com.example.ex4springgaldrimer1.security.PooledPasswordEncoder;
 import com.example.ex4springgaldrimer1.service.*;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -19,15 +29,20 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
 import java.math.BigDecimal;
-import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/admin")
 public class AdminController {
 
+    private static final Logger log = LoggerFactory.getLogger(AdminController.class);
+
     @Autowired
     private UserService userService;
 
@@ -40,22 +55,54 @@ public class AdminController {
     @Autowired
     private GameService gameService;
 
+    @Autowired
+    private FacetCache facetCache;
+
+    @Autowired
+    private FragmentCache fragmentCache;
+
+    @Autowired
+    private DashboardStatistics dashboardStatistics;
+
+    @Autowired
+    private PooledPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private CatalogExportService catalogExportService;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     // Admin Dashboard
     @GetMapping
     public String adminDashboard(Model model) {
-        // Dashboard statistics
-        model.addAttribute("totalUsers", userService.getAllUsers().size());
-        model.addAttribute("totalCustomers", userService.getTotalCustomers());
-        model.addAttribute("totalProducts", productService.getTotalProducts());
-        model.addAttribute("totalStores", storeService.getTotalStores());
-        model.addAttribute("activeStores", storeService.getActiveStoresCount());
-        model.addAttribute("totalGameQuestions", gameService.getTotalQuestions());
-        model.addAttribute("totalGamesPlayed", gameService.getTotalGamesPlayed());
-
-        // Recent activities
-        model.addAttribute("recentGames", gameService.getRecentGames(7).stream().limit(5).toList());
-        model.addAttribute("pendingProductReviews", productService.getPendingComments().stream().limit(5).toList());
-        model.addAttribute("pendingStoreReviews", storeService.getPendingComments().stream().limit(5).toList());
+        // Dashboard statistics and recent activities, from one snapshot
+        DashboardStatistics.Snapshot stats = dashboardStatistics.getSnapshot();
+        model.addAttribute("totalUsers", stats.getTotalUsers());
+        model.addAttribute("totalCustomers", stats.getTotalCustomers());
+        model.addAttribute("totalProducts", stats.getTotalProducts());
+        model.addAttribute("totalStores", stats.getTotalStores());
+        model.addAttribute("activeStores", stats.getActiveStores());
+        model.addAttribute("totalGameQuestions", stats.getTotalGameQuestions());
+        model.addAttribute("totalGamesPlayed", stats.getTotalGamesPlayed());
+        model.addAttribute("pendingProductReviewCount", stats.getPendingProductReviewCount());
+        model.addAttribute("pendingStoreReviewCount", stats.getPendingStoreReviewCount());
+        model.addAttribute("recentGames", stats.getRecentGames());
+        model.addAttribute("pendingProductReviews", stats.getPendingProductReviews());
+        model.addAttribute("pendingStoreReviews", stats.getPendingStoreReviews());
+        model.addAttribute("statsTakenAt", stats.getTakenAt());
+
+        // Cache metrics
+        model.addAttribute("facetCacheStats", facetCache.getStats());
+        model.addAttribute("fragmentCacheStats", fragmentCache.getStats());
+        model.addAttribute("fragmentCacheSize", fragmentCache.getSize());
+        model.addAttribute("passwordEncoder", passwordEncoder);
 
         return "admin/dashboard";
     }
@@ -128,12 +175,33 @@ public class AdminController {
                                  @RequestParam(value = "size", defaultValue = "10") int size,
                                  @RequestParam(value = "category", required = false) String category,
                                  @RequestParam(value = "search", required = false) String search,
+                                 @RequestParam(value = "after", required = false) String after,
+                                 @RequestParam(value = "total", defaultValue = "false") boolean total,
                                  Model model) {
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdDate").descending());
-        Page<Product> products = productService.getProductsWithFilters(search, category, null, null, null, null, pageable);
+        // Empty form fields mean "no filter"
+        category = blankToNull(category);
+        search = blankToNull(search);
+        after = blankToNull(after);
+
+        boolean keysetMode = after != null || page == 0;
+        if (keysetMode) {
+            // Cursor paging, newest first: deep pages cost the same as the first one
+            KeysetPage<Product> products = productService.getProductsAfter(search, null, category, null, null, null, null,
+                    "createdDate", Sort.Direction.DESC, size, after, total);
+            model.addAttribute("products", products);
+        } else {
+            Pageable pageable = PageRequest.of(page, size, Sort.by("createdDate").descending());
+            Page<Product> products = productService.getProductsWithFilters(search, category, null, null, null, null, pageable);
+            model.addAttribute("products", products);
+        }
 
-        model.addAttribute("products", products);
+        model.addAttribute("keysetMode", keysetMode);
+        model.addAttribute("currentSize", size);
+        model.addAttribute("currentAfter", after);
+        model.addAttribute("currentTotal", total);
+        // Summary card from the dashboard snapshot, so listing a page runs no COUNT
+        model.addAttribute("totalProducts", dashboardStatistics.getSnapshot().getTotalProducts());
         model.addAttribute("categories", productService.getAllCategories());
         model.addAttribute("currentCategory", category);
         model.addAttribute("currentSearch", search);
@@ -183,6 +251,7 @@ public class AdminController {
             }
 
             // Handle image upload
+            String replacedImagePath = null;
             if (imageFile != null && !imageFile.isEmpty()) {
                 try {
                     // Validate file size (5MB max)
@@ -202,35 +271,20 @@ public class AdminController {
                         return "admin/product-form";
                     }
 
-                    // Generate unique filename
-                    String originalFilename = imageFile.getOriginalFilename();
-                    String fileExtension = "";
-                    if (originalFilename != null && originalFilename.contains(".")) {
-                        fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-                    }
-
-                    String uniqueFilename = "product_" + System.currentTimeMillis() + "_" +
-                            UUID.randomUUID().toString().substring(0, 8) + fileExtension;
-
-                    // Create products directory if it doesn't exist
-                    Path uploadDir = Paths.get("src/main/resources/static/images/products");
-                    if (!Files.exists(uploadDir)) {
-                        Files.createDirectories(uploadDir);
+                    // Stored under its content hash; thumbnail and medium variants follow in the background
+                    if (product.getId() != null) {
+                        replacedImagePath = productService.getProductById(product.getId()).getImagePath();
                     }
+                    product.setImagePath(imageStorageService.store(imageFile));
+                    log.debug("Image path set to: {}", product.getImagePath());
 
-                    // Save the file
-                    Path filePath = uploadDir.resolve(uniqueFilename);
-                    Files.copy(imageFile.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-                    // Set the image path - FIXED: Use correct path format
-                    product.setImagePath("/images/products/" + uniqueFilename);
-
-                    System.out.println("Image uploaded successfully: " + uniqueFilename);
-                    System.out.println("Image path set to: " + product.getImagePath());
-
+                } catch (IllegalArgumentException e) {
+                    model.addAttribute("imageError", e.getMessage());
+                    model.addAttribute("categories", productService.getAllCategories());
+                    model.addAttribute("brands", productService.getAllBrands());
+                    return "admin/product-form";
                 } catch (IOException e) {
-                    System.err.println("Failed to upload image: " + e.getMessage());
-                    e.printStackTrace();
+                    log.error("Failed to upload image", e);
                     model.addAttribute("imageError", "Failed to upload image. Please try again.");
                     model.addAttribute("categories", productService.getAllCategories());
                     model.addAttribute("brands", productService.getAllBrands());
@@ -246,35 +300,100 @@ public class AdminController {
             }
 
             productService.saveProduct(product);
+            if (replacedImagePath != null && !replacedImagePath.equals(product.getImagePath())) {
+                imageStorageService.deleteIfUnused(replacedImagePath);
+            }
             redirectAttributes.addFlashAttribute("successMessage",
                     product.getId() == null ? "Product created successfully!" : "Product updated successfully!");
 
         } catch (Exception e) {
-            System.err.println("Error saving product: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error saving product", e);
             redirectAttributes.addFlashAttribute("errorMessage", "Error saving product: " + e.getMessage());
         }
 
         return "redirect:/admin/products";
     }
 
+    // Bulk import: the file is the raw request body and is read row by row as it arrives, where a multipart upload
+    // would be received and spooled whole first. Progress, skipped and failed rows are written back as NDJSON lines
+    @PostMapping(value = "/products/import", consumes = {"text/csv", "text/plain", "application/x-ndjson",
+            "application/json", "application/octet-stream"})
+    public void importProducts(@RequestParam(value = "format", required = false) String format,
+                               HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        ProductImportService.Listener listener = new ProductImportService.Listener() {
+            @Override
+            public void progress(ProductImportService.ImportProgress progress) {
+                Map<String, Object> totals = new LinkedHashMap<>();
+                totals.put("rowsRead", progress.getRowsRead());
+                totals.put("imported", progress.getImported());
+                totals.put("skipped", progress.getSkipped());
+                totals.put("failed", progress.getFailed());
+                totals.put("elapsedMillis", progress.getElapsedMillis());
+                writeImportEvent(out, progress.isFinished() ? "done" : "progress", totals);
+                out.flush();
+            }
+
+            @Override
+            public void rowSkipped(long line, String barcode, String reason) {
+                writeImportEvent(out, "skipped", rowEvent(line, barcode, reason));
+            }
+
+            @Override
+            public void rowFailed(long line, String barcode, String reason) {
+                writeImportEvent(out, "failed", rowEvent(line, barcode, reason));
+            }
+        };
+
+        try (InputStream input = request.getInputStream()) {
+            productImportService.importProducts(input, importFormat(format, request.getContentType()), listener);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Product import aborted: {}", e.getMessage());
+            writeImportEvent(out, "aborted", Map.of("message", String.valueOf(e.getMessage())));
+        }
+        out.flush();
+    }
+
+    // Declared format first, then the body's content type
+    private ProductImportService.Format importFormat(String format, String contentType) {
+        if (format != null && !format.isBlank()) {
+            return ProductImportService.Format.valueOf(format.trim().toUpperCase());
+        }
+        boolean json = contentType != null && contentType.toLowerCase().contains("json");
+        return json ? ProductImportService.Format.NDJSON : ProductImportService.Format.CSV;
+    }
+
+    private Map<String, Object> rowEvent(long line, String barcode, String reason) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("line", line);
+        event.put("barcode", barcode);
+        event.put("reason", reason);
+        return event;
+    }
+
+    private void writeImportEvent(PrintWriter out, String type, Map<String, Object> fields) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("event", type);
+        event.putAll(fields);
+        try {
+            out.println(objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            out.println("{\"event\":\"" + type + "\"}");
+        }
+    }
+
     @PostMapping("/products/{id}/delete")
     public String deleteProduct(@PathVariable Long id, RedirectAttributes redirectAttributes) {
         try {
             Product product = productService.getProductById(id);
 
-            // Delete the image file if it's not the default
-            if (product.getImagePath() != null && !product.getImagePath().equals("/images/no-image.png")) {
-                try {
-                    Path imagePath = Paths.get("src/main/resources/static" + product.getImagePath());
-                    Files.deleteIfExists(imagePath);
-                    System.out.println("Deleted image file: " + product.getImagePath());
-                } catch (IOException e) {
-                    System.err.println("Failed to delete image file: " + e.getMessage());
-                }
-            }
-
             productService.deleteProduct(id);
+            // The same image may still be used by another product
+            imageStorageService.deleteIfUnused(product.getImagePath());
             redirectAttributes.addFlashAttribute("successMessage", "Product '" + product.getName() + "' has been deleted.");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage", "Error deleting product: " + e.getMessage());
@@ -291,12 +410,38 @@ public class AdminController {
                                @RequestParam(value = "city", required = false) String city,
                                @RequestParam(value = "state", required = false) String state,
                                @RequestParam(value = "search", required = false) String search,
+                               @RequestParam(value = "after", required = false) String after,
+                               @RequestParam(value = "total", defaultValue = "false") boolean total,
                                Model model) {
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("openingDate").descending());
-        Page<Store> stores = storeService.getStoresWithFilters(search, city, state, null, null, null, null, pageable);
+        // Empty form fields mean "no filter"
+        city = blankToNull(city);
+        state = blankToNull(state);
+        search = blankToNull(search);
+        after = blankToNull(after);
+
+        boolean keysetMode = after != null || page == 0;
+        if (keysetMode) {
+            // Cursor paging, most recently opened first: deep pages cost the same as the first one
+            KeysetPage<Store> stores = storeService.getStoresAfter(search, null, city, state, null, null, null, null,
+                    "openingDate", Sort.Direction.DESC, size, after, total);
+            model.addAttribute("stores", stores);
+        } else {
+            Pageable pageable = PageRequest.of(page, size, Sort.by("openingDate").descending());
+            Page<Store> stores = storeService.getStoresWithFilters(search, city, state, null, null, null, null, pageable);
+            model.addAttribute("stores", stores);
+        }
 
-        model.addAttribute("stores", stores);
+        model.addAttribute("keysetMode", keysetMode);
+        model.addAttribute("currentSize", size);
+        model.addAttribute("currentAfter", after);
+        model.addAttribute("currentTotal", total);
+        // Summary cards from the dashboard snapshot, so listing a page runs no COUNT
+        DashboardStatistics.Snapshot stats = dashboardStatistics.getSnapshot();
+        model.addAttribute("totalStores", stats.getTotalStores());
+        model.addAttribute("activeStores", stats.getActiveStores());
+        model.addAttribute("storesWithParking", stats.getStoresWithParking());
+        model.addAttribute("storesWithDriveThrough", stats.getStoresWithDriveThrough());
         model.addAttribute("cities", storeService.getAllActiveCities());
         model.addAttribute("states", storeService.getAllActiveStates());
         model.addAttribute("currentCity", city);
@@ -483,16 +628,16 @@ public class AdminController {
                                 Model model) {
 
         if ("product".equals(type)) {
-            List<ProductComment> comments;
+            List<ReviewView> comments;
             if (status != null) {
-                comments = productService.getPendingComments();
+                comments = productService.getPendingReviews();
             } else {
-                comments = productService.getPendingComments(); // Get all pending by default
+                comments = productService.getPendingReviews(); // Get all pending by default
             }
             model.addAttribute("productComments", comments);
             model.addAttribute("activeTab", "product");
         } else {
-            List<StoreComment> comments = storeService.getPendingComments();
+            List<StoreReviewView> comments = storeService.getPendingReviews();
             model.addAttribute("storeComments", comments);
             model.addAttribute("activeTab", "store");
         }
@@ -546,4 +691,32 @@ public class AdminController {
         }
         return "redirect:/admin/reviews?type=store";
     }
-}
\ No newline at end of file
+
+    // Helper methods
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value;
+    }
+
+    // Catalog Export: the query is streamed from a database cursor straight into a gzip download
+    @GetMapping("/export/{dataset}")
+    public void exportCatalog(@PathVariable String dataset,
+                              @RequestParam(value = "format", defaultValue = "csv") String format,
+                              HttpServletResponse response) throws IOException {
+        CatalogExportService.Dataset exportDataset;
+        CatalogExportService.Format exportFormat;
+        try {
+            exportDataset = CatalogExportService.Dataset.valueOf(dataset.toUpperCase());
+            exportFormat = CatalogExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Unknown export: " + dataset + " as " + format);
+            return;
+        }
+
+        String filename = dataset.toLowerCase() + "-" + LocalDate.now() + "." + exportFormat.getExtension() + ".gz";
+        response.setContentType("application/gzip");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+
+        long rows = catalogExportService.export(exportDataset, exportFormat, response.getOutputStream());
+        log.info("Exported {} {} rows as {}", rows, dataset, filename);
+    }
+}
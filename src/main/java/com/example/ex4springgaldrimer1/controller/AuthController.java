@@ -2,6 +2,7 @@ package com.example.ex4springgaldrimer1.controller;
 
 import com.example.ex4springgaldrimer1.entity.User;
 import com.example.ex4springgaldrimer1.enums.Role;
+import com.example.ex4springgaldrimer1.security.PasswordHashingBusyException;
 import com.example.ex4springgaldrimer1.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -86,6 +87,10 @@ public class AuthController {
 
             return "redirect:/login";
 
+        } catch (PasswordHashingBusyException e) {
+            model.addAttribute("user", user);
+            model.addAttribute("errorMessage", e.getMessage());
+            return "register";
         } catch (Exception e) {
             model.addAttribute("user", user);
             model.addAttribute("errorMessage", "Registration failed: " + e.getMessage());
@@ -3,10 +3,16 @@ package com.example.ex4springgaldrimer1.controller;
 import com.example.ex4springgaldrimer1.entity.GameQuestion;
 import com.example.ex4springgaldrimer1.entity.GameSession;
 import com.example.ex4springgaldrimer1.entity.User;
+import com.example.ex4springgaldrimer1.entity.UserGameStats;
+import com.example.ex4springgaldrimer1.projection.RecentGameView;
+import com.example.ex4springgaldrimer1.security.AppUserDetails;
+import com.example.ex4springgaldrimer1.service.ActiveGame;
 import com.example.ex4springgaldrimer1.service.GameService;
+import com.example.ex4springgaldrimer1.service.Leaderboard;
 import com.example.ex4springgaldrimer1.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -19,6 +25,8 @@ import java.util.Optional;
 @RequestMapping("/game")
 public class GameController {
 
+    private static final Logger log = LoggerFactory.getLogger(GameController.class);
+
     @Autowired
     private GameService gameService;
 
@@ -37,23 +45,23 @@ public class GameController {
         // Check if user has an active session
         Optional<GameSession> activeSession = gameService.getCurrentSession(currentUser);
 
-        // Game statistics
+        // Game statistics, from the user's stats row
+        UserGameStats stats = gameService.getUserGameStats(currentUser);
         model.addAttribute("currentUser", currentUser);
         model.addAttribute("hasActiveSession", activeSession.isPresent());
         model.addAttribute("canStartNewGame", gameService.canStartNewGame(currentUser));
         model.addAttribute("totalQuestions", gameService.getActiveQuestionsCount());
-        model.addAttribute("userGamesPlayed", gameService.getTotalGamesPlayedByUser(currentUser));
-        model.addAttribute("userHighestScore", gameService.getUserHighestScore(currentUser));
-        model.addAttribute("userAverageScore", gameService.getUserAverageScore(currentUser));
+        model.addAttribute("userGamesPlayed", stats.getGamesPlayed());
+        model.addAttribute("userHighestScore", stats.getBestScore());
+        model.addAttribute("userAverageScore", stats.getAverageScore());
         model.addAttribute("globalHighestScore", gameService.getHighestScore());
 
         // Recent game history
-        List<GameSession> recentGames = gameService.getUserGameHistory(currentUser);
-        model.addAttribute("recentGames", recentGames.stream().limit(5).toList());
+        model.addAttribute("recentGames", gameService.getRecentGames(stats));
 
-        // Leaderboard (top 10)
-        Page<GameSession> topScores = gameService.getTopScores(10);
-        model.addAttribute("topScores", topScores.getContent());
+        // Leaderboard (top 10), served from memory
+        model.addAttribute("topScores", gameService.getLeaderboard(10));
+        model.addAttribute("userRank", gameService.getLeaderboardRank(currentUser.getId()));
 
         if (activeSession.isPresent()) {
             model.addAttribute("activeSession", activeSession.get());
@@ -84,16 +92,13 @@ public class GameController {
 
         try {
             GameSession session = gameService.startNewGame(currentUser, totalQuestions);
-            System.out.println("=== DEBUG: Game Started ===");
-            System.out.println("Created session ID: " + session.getId());
-            System.out.println("Session user: " + session.getUser().getUsername());
-            System.out.println("Total questions: " + session.getTotalQuestions());
+            log.debug("Game {} started for {} with {} questions",
+                    session.getId(), currentUser.getUsername(), session.getTotalQuestions());
 
             redirectAttributes.addFlashAttribute("successMessage", "New game started! Good luck!");
             return "redirect:/game/play/" + session.getId();
         } catch (Exception e) {
-            System.err.println("ERROR starting game: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error starting game for {}", currentUser.getUsername(), e);
             redirectAttributes.addFlashAttribute("errorMessage", "Failed to start game: " + e.getMessage());
             return "redirect:/game";
         }
@@ -109,59 +114,40 @@ public class GameController {
         }
 
         try {
-            GameSession session = gameService.getSessionById(sessionId);
+            ActiveGame game = gameService.getActiveGame(sessionId);
 
-            System.out.println("=== DEBUG playGame ===");
-            System.out.println("Session ID from URL: " + sessionId);
-            System.out.println("Session object ID: " + (session != null ? session.getId() : "null"));
-            System.out.println("Session user: " + (session != null && session.getUser() != null ? session.getUser().getUsername() : "null"));
-            System.out.println("Current user: " + currentUser.getUsername());
+            // Check if game is already completed
+            if (game == null || game.isGameOver()) {
+                log.debug("Game {} is over, redirecting {} to results", sessionId, currentUser.getUsername());
+                return "redirect:/game/results/" + sessionId;
+            }
 
             // Verify session belongs to current user
-            if (!session.getUser().getId().equals(currentUser.getId())) {
+            if (!game.getUserId().equals(currentUser.getId())) {
                 redirectAttributes.addFlashAttribute("errorMessage", "Access denied to this game session.");
                 return "redirect:/game";
             }
 
-            // Check if game is already completed
-            if (session.isGameOver()) {
-                System.out.println("Game is over, redirecting to results");
-                return "redirect:/game/results/" + sessionId;
-            }
-
-            // Get next question
-            System.out.println("Getting next question...");
-            GameQuestion question = gameService.getNextQuestion(session);
+            // Get next question; progress is kept in memory, so no reload is needed
+            GameQuestion question = gameService.getNextQuestion(game);
 
             if (question == null) {
-                // No more questions available, end the game
-                System.out.println("No more questions, ending game");
-                gameService.endGame(session);
+                // No more questions available, the game has been ended
+                log.debug("Game {} has no more questions, ended", sessionId);
                 return "redirect:/game/results/" + sessionId;
             }
 
-            // IMPORTANT: Reload the session after getNextQuestion modifies it
-            session = gameService.getSessionById(sessionId);
-
-            System.out.println("After getNextQuestion - Session ID: " + (session != null ? session.getId() : "null"));
-            System.out.println("Questions answered: " + session.getQuestionsAnswered());
-            System.out.println("Question loaded: " + (question != null ? question.getQuestionText() : "null"));
+            log.debug("Game {}: question {} after {} answered", sessionId, question.getId(), game.getQuestionsAnswered());
 
             // Add all attributes to model
-            model.addAttribute("gameSession", session);
+            model.addAttribute("gameSession", game);
             model.addAttribute("question", question);
-            model.addAttribute("questionNumber", session.getQuestionsAnswered() + 1);
-
-            // Verify what we're sending to template
-            System.out.println("=== Model Attributes ===");
-            System.out.println("session in model: " + (session != null ? "Session[id=" + session.getId() + "]" : "null"));
-            System.out.println("question in model: " + (question != null ? "Question[id=" + question.getId() + "]" : "null"));
+            model.addAttribute("questionNumber", game.getQuestionsAnswered() + 1);
 
             return "game/play";
 
         } catch (Exception e) {
-            System.err.println("ERROR in playGame: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error playing game {}", sessionId, e);
             redirectAttributes.addFlashAttribute("errorMessage", "Game session error: " + e.getMessage());
             return "redirect:/game";
         }
@@ -181,31 +167,32 @@ public class GameController {
         }
 
         try {
-            GameSession session = gameService.getSessionById(sessionId);
+            ActiveGame game = gameService.getActiveGame(sessionId);
+
+            // Ended or being ended; the game takes no more answers
+            if (game == null || game.isGameOver()) {
+                return "redirect:/game/results/" + sessionId;
+            }
 
             // Verify session belongs to current user
-            if (!session.getUser().getId().equals(currentUser.getId())) {
+            if (!game.getUserId().equals(currentUser.getId())) {
                 redirectAttributes.addFlashAttribute("errorMessage", "Access denied to this game session.");
                 return "redirect:/game";
             }
 
             // Submit answer
-            boolean isCorrect = gameService.submitAnswer(session, questionId, answer);
-
-            // Get updated session
-            session = gameService.getSessionById(sessionId);
+            GameService.AnswerResult result = gameService.submitAnswer(game, questionId, answer);
 
             // Add flash message about the answer
-            if (isCorrect) {
+            if (result.isCorrect()) {
                 redirectAttributes.addFlashAttribute("successMessage", "Correct! You earned points!");
             } else {
-                GameQuestion question = gameService.getQuestionById(questionId);
                 redirectAttributes.addFlashAttribute("errorMessage",
-                        "Incorrect. The correct answer was: " + question.getCorrectAnswer());
+                        "Incorrect. The correct answer was: " + result.getCorrectAnswer());
             }
 
             // Check if game is complete
-            if (session.isGameOver()) {
+            if (result.isGameOver()) {
                 return "redirect:/game/results/" + sessionId;
             }
 
@@ -221,11 +208,7 @@ public class GameController {
     // Game Results - FIXED VERSION
     @GetMapping("/results/{sessionId}")
     public String gameResults(@PathVariable Long sessionId, Model model, RedirectAttributes redirectAttributes) {
-        System.out.println("=== DEBUG gameResults ===");
-        System.out.println("Session ID: " + sessionId);
-
         User currentUser = userService.getCurrentUser();
-        System.out.println("Current user: " + (currentUser != null ? currentUser.getUsername() : "null"));
 
         if (currentUser == null) {
             return "redirect:/login";
@@ -233,16 +216,13 @@ public class GameController {
 
         try {
             GameSession session = gameService.getSessionById(sessionId);
-            System.out.println("Session found: " + (session != null));
 
             if (session == null) {
                 redirectAttributes.addFlashAttribute("errorMessage", "Game session not found.");
                 return "redirect:/game";
             }
 
-            System.out.println("Session completed: " + session.getIsCompleted());
-            System.out.println("Session score: " + session.getCurrentScore());
-            System.out.println("Session user: " + session.getUser().getUsername());
+            log.debug("Results of game {}: completed={}, score={}", sessionId, session.getIsCompleted(), session.getCurrentScore());
 
             // Verify session belongs to current user
             if (!session.getUser().getId().equals(currentUser.getId())) {
@@ -252,12 +232,13 @@ public class GameController {
 
             // Ensure game is completed
             if (!session.getIsCompleted()) {
-                System.out.println("Completing unfinished game...");
-                session = gameService.endGame(session);
+                log.debug("Completing unfinished game {}", sessionId);
+                session = gameService.endGame(sessionId);
             }
 
             // Calculate if this is a new high score - WITH NULL SAFETY
-            Integer currentHighScore = currentUser.getHighestGameScore();
+            // (the session's user, which endGame has just updated)
+            Integer currentHighScore = session.getUser().getHighestGameScore();
             Integer sessionScore = session.getCurrentScore();
             boolean isNewHighScore = false;
 
@@ -265,8 +246,6 @@ public class GameController {
                 isNewHighScore = sessionScore.equals(currentHighScore);
             }
 
-            System.out.println("Is new high score: " + isNewHighScore);
-
             // Add attributes with null safety
             model.addAttribute("session", session);
             model.addAttribute("gameSession", session); // Add both for template compatibility
@@ -279,14 +258,10 @@ public class GameController {
             model.addAttribute("userAverageScore", userAverage != null ? userAverage : 0.0);
             model.addAttribute("globalAverageScore", globalAverage != null ? globalAverage : 0.0);
 
-            System.out.println("All model attributes added successfully");
-            System.out.println("Returning to game/results template");
-
             return "game/results";
 
         } catch (Exception e) {
-            System.err.println("ERROR in gameResults: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error loading results of game {}", sessionId, e);
             redirectAttributes.addFlashAttribute("errorMessage", "Error loading results: " + e.getMessage());
             return "redirect:/game";
         }
@@ -329,7 +304,7 @@ public class GameController {
                 return "redirect:/game";
             }
 
-            gameService.endGame(session);
+            gameService.endGame(sessionId);
             redirectAttributes.addFlashAttribute("successMessage", "Game ended. Your progress has been saved!");
             return "redirect:/game/results/" + sessionId;
 
@@ -357,7 +332,7 @@ public class GameController {
                 return "redirect:/game";
             }
 
-            gameService.endGame(session);
+            gameService.endGame(sessionId);
             redirectAttributes.addFlashAttribute("successMessage", "Game ended. Your progress has been saved!");
             return "redirect:/game/results/" + sessionId;
 
@@ -373,11 +348,21 @@ public class GameController {
                               @RequestParam(value = "size", defaultValue = "20") int size,
                               Model model) {
 
-        Page<GameSession> topScores = gameService.getTopScores(size);
-        List<GameSession> recentGames = gameService.getRecentGames(7); // Last 7 days
+        List<Leaderboard.Entry> topScores = gameService.getLeaderboard(size);
+        List<RecentGameView> recentGames = gameService.getRecentGames(7, 10); // Last 7 days
 
-        model.addAttribute("topScores", topScores.getContent());
-        model.addAttribute("recentGames", recentGames.stream().limit(10).toList());
+        model.addAttribute("topScores", topScores);
+
+        // The logged-in user's position, read from the principal and the in-memory leaderboard
+        AppUserDetails principal = userService.getCurrentPrincipal();
+        if (principal != null) {
+            List<Leaderboard.Entry> neighbours = gameService.getLeaderboardNeighbours(principal.getId(), 2);
+            model.addAttribute("userRank", gameService.getLeaderboardRank(principal.getId()));
+            model.addAttribute("neighbours", neighbours);
+            model.addAttribute("neighboursFirstRank", neighbours.isEmpty() ? null : gameService.getLeaderboardRank(neighbours.get(0)));
+            model.addAttribute("currentUserId", principal.getId());
+        }
+        model.addAttribute("recentGames", recentGames);
         model.addAttribute("totalGames", gameService.getTotalGamesPlayed());
         model.addAttribute("averageScore", gameService.getAverageScore());
         model.addAttribute("highestScore", gameService.getHighestScore());
@@ -3,9 +3,15 @@ package com.example.ex4springgaldrimer1.controller;
 import com.example.ex4springgaldrimer1.entity.Product;
 import com.example.ex4springgaldrimer1.entity.ProductComment;
 import com.example.ex4springgaldrimer1.entity.User;
+import com.example.ex4springgaldrimer1.pagination.KeysetPage;
+import com.example.ex4springgaldrimer1.projection.ReviewView;
+import com.example.ex4springgaldrimer1.security.AppUserDetails;
+import com.example.ex4springgaldrimer1.service.FacetService;
 import com.example.ex4springgaldrimer1.service.ProductService;
 import com.example.ex4springgaldrimer1.service.UserService;
 import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -24,17 +30,24 @@ import java.util.List;
 @RequestMapping("/products")
 public class ProductController {
 
+    private static final Logger log = LoggerFactory.getLogger(ProductController.class);
+
+    private static final String RELEVANCE_SORT = "relevance";
+
     @Autowired
     private ProductService productService;
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private FacetService facetService;
+
     // Product Catalog - Main product listing page
     @GetMapping
     public String productCatalog(@RequestParam(value = "page", defaultValue = "0") int page,
                                  @RequestParam(value = "size", defaultValue = "12") int size,
-                                 @RequestParam(value = "sort", defaultValue = "name") String sort,
+                                 @RequestParam(value = "sort", required = false) String sort,
                                  @RequestParam(value = "direction", defaultValue = "asc") String direction,
                                  @RequestParam(value = "category", required = false) String category,
                                  @RequestParam(value = "brand", required = false) String brand,
@@ -42,44 +55,66 @@ public class ProductController {
                                  @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
                                  @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
                                  @RequestParam(value = "inStock", required = false) Boolean inStock,
+                                 @RequestParam(value = "after", required = false) String after,
+                                 @RequestParam(value = "total", defaultValue = "false") boolean total,
                                  Model model) {
 
-        // Create pageable with sorting
-        Sort.Direction sortDirection = direction.equals("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sort));
+        // Empty form fields mean "no filter"
+        category = blankToNull(category);
+        brand = blankToNull(brand);
+        search = blankToNull(search);
+        after = blankToNull(after);
+
+        // Searches default to relevance order, plain listings to name
+        if (sort == null || sort.isBlank()) {
+            sort = search != null ? RELEVANCE_SORT : "name";
+        }
 
-        // Debug logging
-        System.out.println("Filter parameters:");
-        System.out.println("- search: " + search);
-        System.out.println("- category: " + category);
-        System.out.println("- brand: " + brand);
-        System.out.println("- minPrice: " + minPrice);
-        System.out.println("- maxPrice: " + maxPrice);
-        System.out.println("- inStock: " + inStock);
+        log.debug("Filter parameters: search={}, category={}, brand={}, minPrice={}, maxPrice={}, inStock={}",
+                search, category, brand, minPrice, maxPrice, inStock);
 
         // Get products with filters
-        Page<Product> products;
-        if (search != null && !search.trim().isEmpty()) {
-            // If searching, use search functionality
-            List<Product> searchResults = productService.searchProducts(search);
-            // Convert List to Page for consistency
-            int start = (int) pageable.getOffset();
-            int end = Math.min((start + pageable.getPageSize()), searchResults.size());
-            List<Product> pageContent = searchResults.subList(start, end);
-            products = new org.springframework.data.domain.PageImpl<>(pageContent, pageable, searchResults.size());
-            System.out.println("Using search, found: " + searchResults.size() + " products");
+        boolean hasFilters = category != null || brand != null || minPrice != null || maxPrice != null || inStock != null;
+        Sort.Direction sortDirection = direction.equals("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        // Relevance has no column, so filtered searches fall back to name
+        String sortProperty = RELEVANCE_SORT.equals(sort) ? "name" : sort;
+        boolean keysetMode = false;
+
+        if (search != null && RELEVANCE_SORT.equals(sort) && !hasFilters) {
+            // Plain relevance search: rank matches through the search index and load only this page
+            Page<Product> products = productService.searchProducts(search, PageRequest.of(page, size));
+            model.addAttribute("products", products);
+            log.debug("Using search index, found: {} products", products.getTotalElements());
+        } else if (after == null && page > 0) {
+            // Numbered pages from older links: OFFSET paging with a count
+            Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortProperty));
+            Page<Product> products = search != null
+                    ? productService.searchProductsWithFilters(search, category, brand, minPrice, maxPrice, inStock, pageable)
+                    : productService.getProductsWithFilters(null, category, brand, minPrice, maxPrice, inStock, pageable);
+            model.addAttribute("products", products);
+            log.debug("Using offset paging, found: {} products", products.getTotalElements());
         } else {
-            // Use advanced filtering
-            products = productService.getProductsWithFilters(null, category, brand, minPrice, maxPrice, inStock, pageable);
-            System.out.println("Using filters, found: " + products.getTotalElements() + " products");
+            // Cursor paging: seek past the previous page, counting only when the total is asked for
+            KeysetPage<Product> products = productService.getProductsAfter(null, search, category, brand,
+                    minPrice, maxPrice, inStock, sortProperty, sortDirection, size, after, total);
+            model.addAttribute("products", products);
+            keysetMode = true;
+            log.debug("Using keyset paging, loaded: {} products", products.getNumberOfElements());
         }
 
         // Get filter options
         List<String> categories = productService.getAllCategories();
         List<String> brands = productService.getAllBrands();
 
+        // Counts per filter value for the current filter set
+        FacetService.ProductFacets productFacets = facetService.getProductFacets(search, category, brand, minPrice, maxPrice, inStock);
+
         // Add attributes to model
-        model.addAttribute("products", products);
+        model.addAttribute("productFacets", productFacets);
+        model.addAttribute("keysetMode", keysetMode);
+        model.addAttribute("currentSize", size);
+        model.addAttribute("currentAfter", after);
+        model.addAttribute("currentTotal", total);
         model.addAttribute("categories", categories);
         model.addAttribute("brands", brands);
         model.addAttribute("currentCategory", category);
@@ -103,14 +138,14 @@ public class ProductController {
     public String productDetails(@PathVariable Long id, Model model) {
         try {
             Product product = productService.getProductById(id);
-            List<ProductComment> comments = productService.getApprovedComments(id);
+            List<ReviewView> comments = productService.getApprovedReviews(id);
 
             // Calculate rating statistics
             double averageRating = productService.getProductAverageRating(id);
             long reviewCount = productService.getProductReviewCount(id);
 
-            // Get current user for review form
-            User currentUser = userService.getCurrentUser();
+            // Role of the current user for the review form, read from the principal
+            AppUserDetails currentUser = userService.getCurrentPrincipal();
 
             model.addAttribute("product", product);
             model.addAttribute("comments", comments);
@@ -142,7 +177,7 @@ public class ProductController {
         if (bindingResult.hasErrors()) {
             // Reload product details with errors
             Product product = productService.getProductById(id);
-            List<ProductComment> comments = productService.getApprovedComments(id);
+            List<ReviewView> comments = productService.getApprovedReviews(id);
             double averageRating = productService.getProductAverageRating(id);
             long reviewCount = productService.getProductReviewCount(id);
 
@@ -212,4 +247,8 @@ public class ProductController {
 
         return "products/featured";
     }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value;
+    }
 }
\ No newline at end of file
@@ -3,6 +3,11 @@ package com.example.ex4springgaldrimer1.controller;
 import com.example.ex4springgaldrimer1.entity.Store;
 import com.example.ex4springgaldrimer1.entity.StoreComment;
 import com.example.ex4springgaldrimer1.entity.User;
+import com.example.ex4springgaldrimer1.pagination.KeysetPage;
+import com.example.ex4springgaldrimer1.projection.StoreReviewView;
+import com.example.ex4springgaldrimer1.projection.StoreSummaryView;
+import com.example.ex4springgaldrimer1.security.AppUserDetails;
+import com.example.ex4springgaldrimer1.service.FacetService;
 import com.example.ex4springgaldrimer1.service.StoreService;
 import com.example.ex4springgaldrimer1.service.UserService;
 import jakarta.validation.Valid;
@@ -29,6 +34,9 @@ public class StoreController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private FacetService facetService;
+
     // Store Listing - Main stores page
     @GetMapping
     public String storeList(@RequestParam(value = "page", defaultValue = "0") int page,
@@ -42,33 +50,52 @@ public class StoreController {
                             @RequestParam(value = "parkingAvailable", required = false) Boolean parkingAvailable,
                             @RequestParam(value = "driveThrough", required = false) Boolean driveThrough,
                             @RequestParam(value = "isActive", required = false) Boolean isActive,
+                            @RequestParam(value = "after", required = false) String after,
+                            @RequestParam(value = "total", defaultValue = "false") boolean total,
                             Model model) {
 
-        // Create pageable with sorting
+        // Empty form fields mean "no filter"
+        city = blankToNull(city);
+        state = blankToNull(state);
+        zipCode = blankToNull(zipCode);
+        search = blankToNull(search);
+        after = blankToNull(after);
+
+        // Search only covers open stores unless asked otherwise
+        Boolean activeFilter = search != null && isActive == null ? Boolean.TRUE : isActive;
         Sort.Direction sortDirection = direction.equals("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sort));
+        boolean keysetMode = false;
 
         // Get stores with filters
-        Page<Store> stores;
-        if (search != null && !search.trim().isEmpty()) {
-            // If searching, use search functionality
-            List<Store> searchResults = storeService.searchActiveStores(search);
-            // Convert List to Page for consistency
-            int start = (int) pageable.getOffset();
-            int end = Math.min((start + pageable.getPageSize()), searchResults.size());
-            List<Store> pageContent = searchResults.subList(start, end);
-            stores = new org.springframework.data.domain.PageImpl<>(pageContent, pageable, searchResults.size());
+        if (after == null && page > 0) {
+            // Numbered pages from older links: OFFSET paging with a count
+            Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sort));
+            Page<Store> stores = search != null
+                    ? storeService.searchStoresWithFilters(search, city, state, zipCode, activeFilter, parkingAvailable, driveThrough, pageable)
+                    : storeService.getStoresWithFilters(null, city, state, zipCode, activeFilter, parkingAvailable, driveThrough, pageable);
+            model.addAttribute("stores", stores);
         } else {
-            // Use advanced filtering
-            stores = storeService.getStoresWithFilters(null, city, state, zipCode, isActive, parkingAvailable, driveThrough, pageable);
+            // Cursor paging: seek past the previous page, counting only when the total is asked for
+            KeysetPage<Store> stores = storeService.getStoresAfter(null, search, city, state, zipCode,
+                    activeFilter, parkingAvailable, driveThrough, sort, sortDirection, size, after, total);
+            model.addAttribute("stores", stores);
+            keysetMode = true;
         }
 
         // Get filter options
         List<String> cities = storeService.getAllActiveCities();
         List<String> states = storeService.getAllActiveStates();
 
+        // Counts per filter value for the current filter set
+        FacetService.StoreFacets storeFacets = facetService.getStoreFacets(search, city, state, zipCode,
+                activeFilter, parkingAvailable, driveThrough);
+
         // Add attributes to model
-        model.addAttribute("stores", stores);
+        model.addAttribute("storeFacets", storeFacets);
+        model.addAttribute("keysetMode", keysetMode);
+        model.addAttribute("currentSize", size);
+        model.addAttribute("currentAfter", after);
+        model.addAttribute("currentTotal", total);
         model.addAttribute("cities", cities);
         model.addAttribute("states", states);
         model.addAttribute("currentCity", city);
@@ -95,7 +122,7 @@ public class StoreController {
     public String storeDetails(@PathVariable Long id, Model model) {
         try {
             Store store = storeService.getStoreById(id);
-            List<StoreComment> comments = storeService.getApprovedComments(id);
+            List<StoreReviewView> comments = storeService.getApprovedReviews(id);
 
             // Calculate rating statistics
             double averageRating = storeService.getStoreAverageRating(id);
@@ -107,15 +134,11 @@ public class StoreController {
             double cleanlinessRating = storeService.getStoreCleanlinessRating(id);
             double locationRating = storeService.getStoreLocationRating(id);
 
-            // Get current user for review form
-            User currentUser = userService.getCurrentUser();
+            // Role of the current user for the review form, read from the principal
+            AppUserDetails currentUser = userService.getCurrentPrincipal();
 
             // Get stores in same city for recommendations
-            List<Store> nearbyStores = storeService.getStoresByCity(store.getCity())
-                    .stream()
-                    .filter(s -> !s.getId().equals(id) && s.getIsActive())
-                    .limit(3)
-                    .toList();
+            List<StoreSummaryView> nearbyStores = storeService.getOtherStoresInCity(store.getCity(), id, 3);
 
             model.addAttribute("store", store);
             model.addAttribute("comments", comments);
@@ -156,7 +179,7 @@ public class StoreController {
         if (bindingResult.hasErrors()) {
             // Reload store details with errors
             Store store = storeService.getStoreById(id);
-            List<StoreComment> comments = storeService.getApprovedComments(id);
+            List<StoreReviewView> comments = storeService.getApprovedReviews(id);
             double averageRating = storeService.getStoreAverageRating(id);
             long reviewCount = storeService.getStoreReviewCount(id);
 
@@ -262,4 +285,8 @@ public class StoreController {
         model.addAttribute("filterTitle", "Stores with Drive-Through");
         return "stores/list";
     }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value;
+    }
 }
\ No newline at end of file
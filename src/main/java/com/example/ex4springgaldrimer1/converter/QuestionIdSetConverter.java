@@ -0,0 +1,22 @@
+package com.example.ex4springgaldrimer1.converter;
+
+import com.example.ex4springgaldrimer1.entity.QuestionIdSet;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class QuestionIdSetConverter implements AttributeConverter<QuestionIdSet, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(QuestionIdSet attribute) {
+        if (attribute == null || attribute.isEmpty()) {
+            return null;
+        }
+        return attribute.encode();
+    }
+
+    @Override
+    public QuestionIdSet convertToEntityAttribute(byte[] dbData) {
+        return QuestionIdSet.decode(dbData);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.ex4springgaldrimer1.converter;
+
+import com.example.ex4springgaldrimer1.entity.VarLongs;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packs an ordered list of session ids as a version byte, a varint count and zigzag varint differences
+ * from the previous id. Unlike QuestionIdSet the order is kept, since the list is most recent first.
+ */
+@Converter
+public class RecentSessionIdsConverter implements AttributeConverter<List<Long>, byte[]> {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    @Override
+    public byte[] convertToDatabaseColumn(List<Long> sessionIds) {
+        if (sessionIds == null || sessionIds.isEmpty()) {
+            return null;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + sessionIds.size() * 2);
+        out.write(FORMAT_VERSION);
+        VarLongs.write(out, sessionIds.size());
+        long previous = 0;
+        for (long sessionId : sessionIds) {
+            long delta = sessionId - previous;
+            VarLongs.write(out, (delta << 1) ^ (delta >> 63));
+            previous = sessionId;
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public List<Long> convertToEntityAttribute(byte[] data) {
+        List<Long> sessionIds = new ArrayList<>();
+        if (data == null || data.length == 0) {
+            return sessionIds;
+        }
+        if (data[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported session id format version: " + data[0]);
+        }
+
+        int[] cursor = {1};
+        int count = (int) VarLongs.read(data, cursor);
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long zigzag = VarLongs.read(data, cursor);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            sessionIds.add(previous);
+        }
+        return sessionIds;
+    }
+}
@@ -11,7 +11,8 @@ import java.time.LocalDateTime;
 public class GameQuestion {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "game_questions_id")
+    @TableGenerator(name = "game_questions_id", table = "id_generators", pkColumnValue = "game_questions", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Question text is required")
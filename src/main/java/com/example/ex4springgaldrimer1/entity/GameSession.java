@@ -1,5 +1,6 @@
 package com.example.ex4springgaldrimer1.entity;
 
+import com.example.ex4springgaldrimer1.converter.QuestionIdSetConverter;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
@@ -8,7 +9,8 @@ import java.time.LocalDateTime;
 public class GameSession {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "game_sessions_id")
+    @TableGenerator(name = "game_sessions_id", table = "id_generators", pkColumnValue = "game_sessions", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -40,8 +42,13 @@ public class GameSession {
     private Integer customerPointsAwarded = 0;
 
     // Track which questions have been asked in this session
-    @Column(columnDefinition = "TEXT")
-    private String askedQuestionIds; // Comma-separated list of question IDs
+    @Convert(converter = QuestionIdSetConverter.class)
+    @Column(name = "asked_questions", columnDefinition = "BLOB")
+    private QuestionIdSet askedQuestionIds = new QuestionIdSet(); // Delta-varint packed question IDs
+
+    // Legacy comma-separated column, migrated into askedQuestionIds when the row is loaded
+    @Column(name = "asked_question_ids", columnDefinition = "TEXT")
+    private String legacyAskedQuestionIds;
 
     // Constructors
     public GameSession() {
@@ -145,14 +152,29 @@ public class GameSession {
         this.customerPointsAwarded = customerPointsAwarded;
     }
 
-    public String getAskedQuestionIds() {
+    public QuestionIdSet getAskedQuestionIds() {
         return askedQuestionIds;
     }
 
-    public void setAskedQuestionIds(String askedQuestionIds) {
+    public void setAskedQuestionIds(QuestionIdSet askedQuestionIds) {
         this.askedQuestionIds = askedQuestionIds;
     }
 
+    // Migrate rows written before the packed format; the legacy column is cleared on the next flush
+    @PostLoad
+    private void migrateLegacyAskedQuestionIds() {
+        if (askedQuestionIds == null) {
+            askedQuestionIds = new QuestionIdSet();
+        }
+        if (legacyAskedQuestionIds != null) {
+            QuestionIdSet legacy = QuestionIdSet.parseLegacy(legacyAskedQuestionIds);
+            for (long questionId : legacy.toArray()) {
+                askedQuestionIds.add(questionId);
+            }
+            legacyAskedQuestionIds = null;
+        }
+    }
+
     // Helper methods
     public double getAccuracyPercentage() {
         if (questionsAnswered == 0) return 0.0;
@@ -178,11 +200,10 @@ public class GameSession {
     }
 
     public void addAskedQuestion(Long questionId) {
-        if (askedQuestionIds == null || askedQuestionIds.isEmpty()) {
-            askedQuestionIds = questionId.toString();
-        } else {
-            askedQuestionIds += "," + questionId;
+        if (askedQuestionIds == null) {
+            askedQuestionIds = new QuestionIdSet();
         }
+        askedQuestionIds.add(questionId);
     }
 
     public void completeGame() {
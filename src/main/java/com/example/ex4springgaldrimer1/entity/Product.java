@@ -1,6 +1,7 @@
 package com.example.ex4springgaldrimer1.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -14,7 +15,8 @@ import java.util.List;
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "products_id")
+    @TableGenerator(name = "products_id", table = "id_generators", pkColumnValue = "products", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Product name is required")
@@ -56,6 +58,37 @@ public class Product {
     @Column(name = "weight_kg")
     private Double weight;
 
+    // Count, rating sum and per-star counts of the product's approved reviews, for the product page's
+    // average without reading its comments. ProductService adjusts them when a review is approved,
+    // rejected or deleted; not updatable, so saving the admin product form cannot reset them.
+    @ColumnDefault("0")
+    @Column(name = "approved_review_count", nullable = false, updatable = false)
+    private Integer approvedReviewCount = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_sum", nullable = false, updatable = false)
+    private Integer ratingSum = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_1_count", nullable = false, updatable = false)
+    private Integer rating1Count = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_2_count", nullable = false, updatable = false)
+    private Integer rating2Count = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_3_count", nullable = false, updatable = false)
+    private Integer rating3Count = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_4_count", nullable = false, updatable = false)
+    private Integer rating4Count = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_5_count", nullable = false, updatable = false)
+    private Integer rating5Count = 0;
+
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<ProductComment> comments;
 
@@ -180,21 +213,82 @@ public class Product {
         this.comments = comments;
     }
 
+    public Integer getApprovedReviewCount() {
+        return approvedReviewCount;
+    }
+
+    public void setApprovedReviewCount(Integer approvedReviewCount) {
+        this.approvedReviewCount = approvedReviewCount;
+    }
+
+    public Integer getRatingSum() {
+        return ratingSum;
+    }
+
+    public void setRatingSum(Integer ratingSum) {
+        this.ratingSum = ratingSum;
+    }
+
+    public Integer getRating1Count() {
+        return rating1Count;
+    }
+
+    public void setRating1Count(Integer rating1Count) {
+        this.rating1Count = rating1Count;
+    }
+
+    public Integer getRating2Count() {
+        return rating2Count;
+    }
+
+    public void setRating2Count(Integer rating2Count) {
+        this.rating2Count = rating2Count;
+    }
+
+    public Integer getRating3Count() {
+        return rating3Count;
+    }
+
+    public void setRating3Count(Integer rating3Count) {
+        this.rating3Count = rating3Count;
+    }
+
+    public Integer getRating4Count() {
+        return rating4Count;
+    }
+
+    public void setRating4Count(Integer rating4Count) {
+        this.rating4Count = rating4Count;
+    }
+
+    public Integer getRating5Count() {
+        return rating5Count;
+    }
+
+    public void setRating5Count(Integer rating5Count) {
+        this.rating5Count = rating5Count;
+    }
+
     // Helper methods
     public long getApprovedCommentsCount() {
-        if (comments == null) return 0;
-        return comments.stream()
-                .filter(comment -> comment.getStatus() == com.example.ex4springgaldrimer1.enums.CommentStatus.APPROVED)
-                .count();
+        return approvedReviewCount != null ? approvedReviewCount : 0;
     }
 
     public double getAverageRating() {
-        if (comments == null || comments.isEmpty()) return 0.0;
-        return comments.stream()
-                .filter(comment -> comment.getStatus() == com.example.ex4springgaldrimer1.enums.CommentStatus.APPROVED)
-                .mapToInt(ProductComment::getRating)
-                .average()
-                .orElse(0.0);
+        if (approvedReviewCount == null || approvedReviewCount == 0) return 0.0;
+        return (double) ratingSum / approvedReviewCount;
+    }
+
+    public int getRatingCount(int stars) {
+        Integer count = switch (stars) {
+            case 1 -> rating1Count;
+            case 2 -> rating2Count;
+            case 3 -> rating3Count;
+            case 4 -> rating4Count;
+            case 5 -> rating5Count;
+            default -> 0;
+        };
+        return count != null ? count : 0;
     }
 
     public String getFormattedPrice() {
@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 public class ProductComment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "product_comments_id")
+    @TableGenerator(name = "product_comments_id", table = "id_generators", pkColumnValue = "product_comments", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Comment content is required")
@@ -0,0 +1,133 @@
+package com.example.ex4springgaldrimer1.entity;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Compact set of question IDs asked in a game session.
+ * Kept as a sorted long array in memory and stored as a delta-varint packed BLOB,
+ * so membership checks are a binary search and the stored row stays a few bytes per question.
+ */
+public class QuestionIdSet {
+
+    // Leading byte of the packed format, bumped if the layout ever changes
+    private static final byte FORMAT_VERSION = 1;
+
+    private long[] ids;
+    private int size;
+
+    // Constructors
+    public QuestionIdSet() {
+        this.ids = new long[16];
+        this.size = 0;
+    }
+
+    private QuestionIdSet(long[] sortedIds, int size) {
+        this.ids = sortedIds;
+        this.size = size;
+    }
+
+    // Set operations
+    public boolean contains(long id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    public boolean add(long id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0) {
+            return false;
+        }
+
+        int insertAt = -position - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(16, ids.length * 2));
+        }
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    // Packed format: version byte, varint count, then varint gaps between the sorted IDs
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + size * 2);
+        out.write(FORMAT_VERSION);
+        VarLongs.write(out, size);
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            VarLongs.write(out, ids[i] - previous);
+            previous = ids[i];
+        }
+        return out.toByteArray();
+    }
+
+    public static QuestionIdSet decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return new QuestionIdSet();
+        }
+        if (data[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported question id format version: " + data[0]);
+        }
+
+        int[] cursor = {1};
+        int count = (int) VarLongs.read(data, cursor);
+        long[] sortedIds = new long[Math.max(16, count)];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += VarLongs.read(data, cursor);
+            sortedIds[i] = previous;
+        }
+        return new QuestionIdSet(sortedIds, count);
+    }
+
+    /**
+     * Parse the legacy comma-separated format still found in older game_sessions rows.
+     */
+    public static QuestionIdSet parseLegacy(String csv) {
+        QuestionIdSet set = new QuestionIdSet();
+        if (csv == null || csv.isBlank()) {
+            return set;
+        }
+
+        for (String part : csv.split(",")) {
+            String trimmed = part.trim();
+            if (!trimmed.isEmpty()) {
+                set.add(Long.parseLong(trimmed));
+            }
+        }
+        return set;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof QuestionIdSet other)) return false;
+        return Arrays.equals(ids, 0, size, other.ids, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + Long.hashCode(ids[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
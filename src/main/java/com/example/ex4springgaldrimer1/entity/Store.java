@@ -1,6 +1,7 @@
 package com.example.ex4springgaldrimer1.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
@@ -13,7 +14,8 @@ import java.util.Set;
 public class Store {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "stores_id")
+    @TableGenerator(name = "stores_id", table = "id_generators", pkColumnValue = "stores", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Store name is required")
@@ -72,6 +74,36 @@ public class Store {
     @Column(name = "drive_through")
     private Boolean driveThrough = false;
 
+    // Overall rating totals of approved store reviews; the service, cleanliness and location
+    // averages are still computed from the comments. Written only by StoreService's UPDATE statements.
+    @ColumnDefault("0")
+    @Column(name = "approved_review_count", nullable = false, updatable = false)
+    private Integer approvedReviewCount = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_sum", nullable = false, updatable = false)
+    private Integer ratingSum = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_1_count", nullable = false, updatable = false)
+    private Integer rating1Count = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_2_count", nullable = false, updatable = false)
+    private Integer rating2Count = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_3_count", nullable = false, updatable = false)
+    private Integer rating3Count = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_4_count", nullable = false, updatable = false)
+    private Integer rating4Count = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_5_count", nullable = false, updatable = false)
+    private Integer rating5Count = 0;
+
     // Relationships
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
@@ -254,25 +286,86 @@ public class Store {
         this.comments = comments;
     }
 
+    public Integer getApprovedReviewCount() {
+        return approvedReviewCount;
+    }
+
+    public void setApprovedReviewCount(Integer approvedReviewCount) {
+        this.approvedReviewCount = approvedReviewCount;
+    }
+
+    public Integer getRatingSum() {
+        return ratingSum;
+    }
+
+    public void setRatingSum(Integer ratingSum) {
+        this.ratingSum = ratingSum;
+    }
+
+    public Integer getRating1Count() {
+        return rating1Count;
+    }
+
+    public void setRating1Count(Integer rating1Count) {
+        this.rating1Count = rating1Count;
+    }
+
+    public Integer getRating2Count() {
+        return rating2Count;
+    }
+
+    public void setRating2Count(Integer rating2Count) {
+        this.rating2Count = rating2Count;
+    }
+
+    public Integer getRating3Count() {
+        return rating3Count;
+    }
+
+    public void setRating3Count(Integer rating3Count) {
+        this.rating3Count = rating3Count;
+    }
+
+    public Integer getRating4Count() {
+        return rating4Count;
+    }
+
+    public void setRating4Count(Integer rating4Count) {
+        this.rating4Count = rating4Count;
+    }
+
+    public Integer getRating5Count() {
+        return rating5Count;
+    }
+
+    public void setRating5Count(Integer rating5Count) {
+        this.rating5Count = rating5Count;
+    }
+
     // Helper methods
     public String getFullAddress() {
         return address + ", " + city + ", " + state + " " + zipCode;
     }
 
     public long getApprovedCommentsCount() {
-        if (comments == null) return 0;
-        return comments.stream()
-                .filter(comment -> comment.getStatus() == com.example.ex4springgaldrimer1.enums.CommentStatus.APPROVED)
-                .count();
+        return approvedReviewCount != null ? approvedReviewCount : 0;
     }
 
     public double getAverageRating() {
-        if (comments == null || comments.isEmpty()) return 0.0;
-        return comments.stream()
-                .filter(comment -> comment.getStatus() == com.example.ex4springgaldrimer1.enums.CommentStatus.APPROVED)
-                .mapToInt(StoreComment::getRating)
-                .average()
-                .orElse(0.0);
+        if (approvedReviewCount == null || approvedReviewCount == 0) return 0.0;
+        return (double) ratingSum / approvedReviewCount;
+    }
+
+    public int getRatingCount(int stars) {
+        Integer count = switch (stars) {
+            case 1 -> rating1Count;
+            case 2 -> rating2Count;
+            case 3 -> rating3Count;
+            case 4 -> rating4Count;
+            case 5 -> rating5Count;
+            default -> 0;
+        };
+        return count != null ? count : 0;
     }
 
     public String getStatusDisplay() {
@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 public class StoreComment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "store_comments_id")
+    @TableGenerator(name = "store_comments_id", table = "id_generators", pkColumnValue = "store_comments", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Comment content is required")
@@ -0,0 +1,105 @@
+package com.example.ex4springgaldrimer1.entity;
+
+import com.example.ex4springgaldrimer1.converter.RecentSessionIdsConverter;
+import jakarta.persistence.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-user rollup of completed game sessions, kept up to date as games end,
+ * so the game home page reads one row instead of aggregating the user's history.
+ */
+@Entity
+@Table(name = "user_game_stats")
+public class UserGameStats {
+
+    // Number of recent session ids kept for the "recent games" list
+    public static final int RECENT_GAMES = 5;
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "games_played", nullable = false)
+    private Integer gamesPlayed = 0;
+
+    @Column(name = "score_sum", nullable = false)
+    private Long scoreSum = 0L;
+
+    @Column(name = "best_score")
+    private Integer bestScore;
+
+    // Most recent first, packed by RecentSessionIdsConverter
+    @Convert(converter = RecentSessionIdsConverter.class)
+    @Column(name = "recent_sessions", columnDefinition = "BLOB")
+    private List<Long> recentSessionIds = new ArrayList<>();
+
+    // Constructors
+    public UserGameStats() {
+    }
+
+    public UserGameStats(Long userId) {
+        this.userId = userId;
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Integer getGamesPlayed() {
+        return gamesPlayed;
+    }
+
+    public void setGamesPlayed(Integer gamesPlayed) {
+        this.gamesPlayed = gamesPlayed;
+    }
+
+    public Long getScoreSum() {
+        return scoreSum;
+    }
+
+    public void setScoreSum(Long scoreSum) {
+        this.scoreSum = scoreSum;
+    }
+
+    public Integer getBestScore() {
+        return bestScore;
+    }
+
+    public void setBestScore(Integer bestScore) {
+        this.bestScore = bestScore;
+    }
+
+    public List<Long> getRecentSessionIds() {
+        return new ArrayList<>(recentSessionIds);
+    }
+
+    // Always replaced with a new list, never changed in place, so Hibernate sees the change
+    public void setRecentSessionIds(List<Long> sessionIds) {
+        this.recentSessionIds = new ArrayList<>(sessionIds.subList(0, Math.min(sessionIds.size(), RECENT_GAMES)));
+    }
+
+    // Helper methods
+    public void addCompletedGame(Long sessionId, int score) {
+        gamesPlayed++;
+        scoreSum += score;
+        if (bestScore == null || score > bestScore) {
+            bestScore = score;
+        }
+
+        List<Long> recent = getRecentSessionIds();
+        recent.remove(sessionId);
+        recent.add(0, sessionId);
+        setRecentSessionIds(recent);
+    }
+
+    public Double getAverageScore() {
+        return gamesPlayed > 0 ? (double) scoreSum / gamesPlayed : null;
+    }
+}
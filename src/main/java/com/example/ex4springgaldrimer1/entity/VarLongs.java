@@ -0,0 +1,39 @@
+package com.example.ex4springgaldrimer1.entity;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Unsigned LEB128 varints, seven bits per byte, for the packed id columns.
+ * Small values such as gaps between sorted ids take one or two bytes.
+ */
+public final class VarLongs {
+
+    private VarLongs() {
+    }
+
+    public static void write(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Read the varint at cursor[0] and advance the cursor past it.
+     */
+    public static long read(byte[] data, int[] cursor) {
+        long result = 0;
+        int shift = 0;
+        byte current;
+        do {
+            if (cursor[0] >= data.length) {
+                throw new IllegalArgumentException("Truncated packed id data");
+            }
+            current = data[cursor[0]++];
+            result |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return result;
+    }
+}
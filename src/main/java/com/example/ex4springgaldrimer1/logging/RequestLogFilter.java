@@ -0,0 +1,77 @@
+package com.example.ex4springgaldrimer1.logging;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sampled access log. Every request gets an id in the MDC, so its log lines can be grouped, and is sampled at
+ * the configured rate. A sampled request gets an INFO access line and keeps its DEBUG diagnostics (see
+ * RequestSamplingTurboFilter); slow and failed requests are logged at WARN whether sampled or not.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestLogFilter extends OncePerRequestFilter {
+
+    public static final String REQUEST_ID_KEY = "requestId";
+    public static final String SAMPLED_KEY = "sampled";
+
+    private static final Logger log = LoggerFactory.getLogger(RequestLogFilter.class);
+
+    @Value("${app.logging.request-sample-rate:1.0}")
+    private double sampleRate;
+
+    @Value("${app.logging.slow-request-millis:1000}")
+    private long slowRequestMillis;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long started = System.nanoTime();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean sampled = sampleRate >= 1.0 || random.nextDouble() < sampleRate;
+        MDC.put(REQUEST_ID_KEY, Long.toHexString(random.nextLong()));
+        if (sampled) {
+            MDC.put(SAMPLED_KEY, "true");
+        }
+
+        Throwable failure = null;
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            int status = failure != null ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            if (status >= 500 || millis >= slowRequestMillis) {
+                logRequest(log.atWarn(), request, status, millis);
+            } else if (sampled) {
+                logRequest(log.atInfo(), request, status, millis);
+            }
+            MDC.remove(SAMPLED_KEY);
+            MDC.remove(REQUEST_ID_KEY);
+        }
+    }
+
+    private static void logRequest(LoggingEventBuilder event, HttpServletRequest request, int status, long millis) {
+        event.addKeyValue("http.method", request.getMethod())
+                .addKeyValue("url.path", request.getRequestURI())
+                .addKeyValue("http.status", status)
+                .addKeyValue("duration.ms", millis)
+                .log("{} {} {} in {} ms", request.getMethod(), request.getRequestURI(), status, millis);
+    }
+}
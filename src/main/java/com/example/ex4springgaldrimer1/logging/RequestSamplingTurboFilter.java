@@ -0,0 +1,27 @@
+package com.example.ex4springgaldrimer1.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Drops DEBUG and TRACE output of requests that RequestLogFilter did not sample, before the message is built.
+ * Also answers isDebugEnabled(), so guarded diagnostics cost nothing for unsampled requests.
+ * Output outside a request is left to the logger levels. Registered in logback-spring.xml.
+ */
+public class RequestSamplingTurboFilter extends TurboFilter {
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == null || level.isGreaterOrEqual(Level.INFO)) {
+            return FilterReply.NEUTRAL;
+        }
+        if (MDC.get(RequestLogFilter.REQUEST_ID_KEY) == null || MDC.get(RequestLogFilter.SAMPLED_KEY) != null) {
+            return FilterReply.NEUTRAL;
+        }
+        return FilterReply.DENY;
+    }
+}
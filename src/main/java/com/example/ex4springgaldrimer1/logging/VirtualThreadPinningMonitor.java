@@ -0,0 +1,106 @@
+package com.example.ex4springgaldrimer1.logging;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reports virtual threads pinned to their carrier, read in-process from the JDK's jdk.VirtualThreadPinned
+ * JFR event (Java 21+): typically blocking I/O or a lock wait inside a synchronized block or method. Each
+ * pinning site, the first application frame of the stack, is logged at WARN with its stack the first time
+ * and counted afterwards. Registered by VirtualThreadConfig.
+ */
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APPLICATION_PACKAGE = "com.example.ex4springgaldrimer1.";
+
+    // Frames logged with the first report of a site
+    private static final int LOGGED_FRAMES = 16;
+
+    @Value("${app.virtual-threads.pinning.threshold-millis:20}")
+    private long thresholdMillis;
+
+    private RecordingStream recording;
+
+    private final Map<String, AtomicLong> pinnedBySite = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMillis)).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::report);
+        recording.startAsync();
+        log.info("Reporting virtual threads pinned for at least {} ms", thresholdMillis);
+    }
+
+    @PreDestroy
+    public void stop() {
+        recording.close();
+    }
+
+    private void report(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() != null
+                ? event.getStackTrace().getFrames() : List.of();
+        String site = site(frames);
+        long count = pinnedBySite.computeIfAbsent(site, key -> new AtomicLong()).incrementAndGet();
+        long millis = event.getDuration().toMillis();
+
+        if (count == 1) {
+            log.atWarn()
+                    .addKeyValue("pinned.site", site)
+                    .addKeyValue("duration.ms", millis)
+                    .log("Virtual thread pinned for {} ms at {}\n{}", millis, site, describe(frames));
+        } else {
+            log.debug("Virtual thread pinned for {} ms at {} ({} times)", millis, site, count);
+        }
+    }
+
+    // First frame of application code, or the top frame when the stack has none
+    private static String site(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            if (frame.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE)) {
+                return frame(frame);
+            }
+        }
+        return frames.isEmpty() ? "unknown" : frame(frames.get(0));
+    }
+
+    private static String describe(List<RecordedFrame> frames) {
+        StringBuilder stack = new StringBuilder();
+        for (int i = 0; i < Math.min(frames.size(), LOGGED_FRAMES); i++) {
+            stack.append("\tat ").append(frame(frames.get(i))).append('\n');
+        }
+        return stack.toString();
+    }
+
+    private static String frame(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+
+    // Metrics
+
+    /**
+     * Pinning events per site since startup.
+     */
+    public Map<String, Long> getPinnedBySite() {
+        Map<String, Long> counts = new TreeMap<>();
+        pinnedBySite.forEach((site, count) -> counts.put(site, count.get()));
+        return counts;
+    }
+}
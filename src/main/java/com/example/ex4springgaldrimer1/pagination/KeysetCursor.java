@@ -0,0 +1,136 @@
+package com.example.ex4springgaldrimer1.pagination;
+
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by (sort column, id), passed between requests as an opaque URL-safe token.
+ * The next page is found by seeking past the last row seen instead of skipping rows with OFFSET,
+ * so a deep page costs the same as the first one.
+ */
+public final class KeysetCursor {
+
+    // Leading field of the token, bumped if the layout ever changes
+    private static final String FORMAT_VERSION = "1";
+    private static final String SEPARATOR = "|";
+
+    private final String property;
+    private final Sort.Direction direction;
+    private final Object value;
+    private final Long id;
+
+    public KeysetCursor(String property, Sort.Direction direction, Object value, Long id) {
+        this.property = property;
+        this.direction = direction;
+        this.value = value;
+        this.id = id;
+    }
+
+    // Token format
+    public String encode() {
+        String raw = String.join(SEPARATOR, FORMAT_VERSION, property, direction.name(), String.valueOf(id),
+                typeTag(value), value == null ? "" : value.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token produced for the same sort.
+     *
+     * @return the cursor, or null when the token is blank, malformed or was issued for another sort,
+     *         in which case the listing starts again from the first page
+     */
+    public static KeysetCursor decode(String token, String property, Sort.Direction direction) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The value goes last so separators inside it survive the split
+            String[] parts = raw.split("\\" + SEPARATOR, 6);
+            if (parts.length != 6 || !FORMAT_VERSION.equals(parts[0])
+                    || !parts[1].equals(property) || !parts[2].equals(direction.name())) {
+                return null;
+            }
+            return new KeysetCursor(property, direction, parseValue(parts[4], parts[5]), Long.parseLong(parts[3]));
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            return null;
+        }
+    }
+
+    // Seek predicate
+
+    /**
+     * Rows that come after this cursor in (property, id) order.
+     * NULLs sort lowest, which is how both MySQL and H2 order them by default.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <T> Specification<T> toSpecification() {
+        return (root, query, cb) -> {
+            Path<Comparable> column = root.get(property);
+            Expression<Long> idColumn = root.get("id");
+            boolean ascending = direction.isAscending();
+            Predicate idAfter = ascending ? cb.greaterThan(idColumn, id) : cb.lessThan(idColumn, id);
+
+            if (value == null) {
+                Predicate sameNull = cb.and(cb.isNull(column), idAfter);
+                return ascending ? cb.or(sameNull, cb.isNotNull(column)) : sameNull;
+            }
+
+            Comparable current = (Comparable) value;
+            Predicate beyond = ascending ? cb.greaterThan(column, current) : cb.lessThan(column, current);
+            Predicate seek = cb.or(beyond, cb.and(cb.equal(column, current), idAfter));
+            return ascending ? seek : cb.or(seek, cb.isNull(column));
+        };
+    }
+
+    // Helpers
+    private static String typeTag(Object value) {
+        if (value == null) return "N";
+        if (value instanceof String) return "S";
+        if (value instanceof BigDecimal) return "D";
+        if (value instanceof LocalDateTime) return "T";
+        if (value instanceof Integer) return "I";
+        if (value instanceof Long) return "L";
+        if (value instanceof Boolean) return "B";
+        throw new IllegalArgumentException("Unsupported keyset value type: " + value.getClass().getName());
+    }
+
+    private static Object parseValue(String tag, String text) {
+        return switch (tag) {
+            case "N" -> null;
+            case "S" -> text;
+            case "D" -> new BigDecimal(text);
+            case "T" -> LocalDateTime.parse(text);
+            case "I" -> Integer.valueOf(text);
+            case "L" -> Long.valueOf(text);
+            case "B" -> Boolean.valueOf(text);
+            default -> throw new IllegalArgumentException("Unknown keyset value type: " + tag);
+        };
+    }
+
+    // Getters
+    public String getProperty() {
+        return property;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.ex4springgaldrimer1.pagination;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paged listing: the rows, the token for the next page and,
+ * only when the caller asked for it, the total number of matching rows.
+ */
+public class KeysetPage<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+    private final Long totalElements;
+
+    public KeysetPage(List<T> content, String nextCursor, Long totalElements) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.totalElements = totalElements;
+    }
+
+    /**
+     * Fetch the page after the given token, ordered by (property, id) in the given direction.
+     * Reads one extra row to learn whether a next page exists, so no COUNT query runs unless withTotal is set.
+     */
+    public static <T> KeysetPage<T> fetch(JpaSpecificationExecutor<T> repository, Specification<T> filters,
+                                          String property, Sort.Direction direction, int size,
+                                          String after, boolean withTotal) {
+        int pageSize = Math.max(1, size);
+        KeysetCursor cursor = KeysetCursor.decode(after, property, direction);
+        Specification<T> seek = cursor != null ? filters.and(cursor.toSpecification()) : filters;
+        Sort sort = Sort.by(direction, property).and(Sort.by(direction, "id"));
+
+        List<T> rows = repository.findBy(seek, query -> query.sortBy(sort).limit(pageSize + 1).all());
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            BeanWrapper last = PropertyAccessorFactory.forBeanPropertyAccess(rows.get(pageSize - 1));
+            nextCursor = new KeysetCursor(property, direction, last.getPropertyValue(property),
+                    (Long) last.getPropertyValue("id")).encode();
+        }
+
+        Long total = withTotal ? repository.count(filters) : null;
+        return new KeysetPage<>(rows, nextCursor, total);
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public int getNumberOfElements() {
+        return content.size();
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Total matching rows, or null when the total was not requested.
+     */
+    public Long getTotalElements() {
+        return totalElements;
+    }
+}
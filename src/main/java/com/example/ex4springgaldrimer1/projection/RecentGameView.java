@@ -0,0 +1,17 @@
+package com.example.ex4springgaldrimer1.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * A recent game session with its player's username.
+ */
+public interface RecentGameView {
+
+    Long getId();
+
+    String getUsername();
+
+    Integer getCurrentScore();
+
+    LocalDateTime getSessionEnd();
+}
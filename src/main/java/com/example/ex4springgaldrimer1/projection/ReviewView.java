@@ -0,0 +1,42 @@
+package com.example.ex4springgaldrimer1.projection;
+
+import com.example.ex4springgaldrimer1.enums.CommentStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * A product or store review as the review lists show it: the comment columns plus the reviewer's username
+ * and the reviewed product or store, read in one query instead of loading the user and subject per row.
+ */
+public interface ReviewView {
+
+    Long getId();
+
+    Long getSubjectId();
+
+    String getSubjectName();
+
+    String getUsername();
+
+    String getTitle();
+
+    String getContent();
+
+    Integer getRating();
+
+    CommentStatus getStatus();
+
+    LocalDateTime getTimestamp();
+
+    default String getStarRating() {
+        StringBuilder stars = new StringBuilder();
+        for (int i = 1; i <= 5; i++) {
+            stars.append(getRating() != null && i <= getRating() ? "★" : "☆");
+        }
+        return stars.toString();
+    }
+
+    default String getFormattedTimestamp() {
+        return getTimestamp().toLocalDate().toString();
+    }
+}
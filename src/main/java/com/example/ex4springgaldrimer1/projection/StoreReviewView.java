@@ -0,0 +1,15 @@
+package com.example.ex4springgaldrimer1.projection;
+
+/**
+ * A store review with the detailed ratings only store reviews have.
+ */
+public interface StoreReviewView extends ReviewView {
+
+    Integer getServiceRating();
+
+    Integer getCleanlinessRating();
+
+    Integer getLocationRating();
+
+    Boolean getWouldRecommend();
+}
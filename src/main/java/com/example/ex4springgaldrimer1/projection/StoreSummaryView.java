@@ -0,0 +1,13 @@
+package com.example.ex4springgaldrimer1.projection;
+
+/**
+ * Name and address of a store, for links to other stores.
+ */
+public interface StoreSummaryView {
+
+    Long getId();
+
+    String getName();
+
+    String getAddress();
+}
@@ -22,6 +22,10 @@ public interface GameQuestionRepository extends JpaRepository<GameQuestion, Long
     // Questions by difficulty
     List<GameQuestion> findByDifficultyLevelAndIsActive(Integer difficultyLevel, Boolean isActive);
 
+    // Lightweight keys for the in-memory question pool: id, type, difficulty
+    @Query("SELECT q.id, q.questionType, q.difficultyLevel FROM GameQuestion q WHERE q.isActive = true")
+    List<Object[]> findActiveQuestionKeys();
+
     // Random questions for game
     @Query(value = "SELECT * FROM game_questions WHERE is_active = true ORDER BY RAND() LIMIT :limit", nativeQuery = true)
     List<GameQuestion> findRandomActiveQuestions(@Param("limit") int limit);
@@ -3,6 +3,7 @@ package com.example.ex4springgaldrimer1.repository;
 
 import com.example.ex4springgaldrimer1.entity.GameSession;
 import com.example.ex4springgaldrimer1.entity.User;
+import com.example.ex4springgaldrimer1.projection.RecentGameView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -23,10 +24,25 @@ public interface GameSessionRepository extends JpaRepository<GameSession, Long>
 
     // Active (incomplete) session for user
     Optional<GameSession> findByUserAndIsCompleted(User user, Boolean isCompleted);
+    Optional<GameSession> findByUserIdAndIsCompleted(Long userId, Boolean isCompleted);
+
+    // A session with its player, for the results page and for ending a game
+    @Query("SELECT gs FROM GameSession gs JOIN FETCH gs.user WHERE gs.id = :id")
+    Optional<GameSession> findByIdWithUser(@Param("id") Long id);
 
     // Recent sessions
     List<GameSession> findBySessionStartAfterOrderBySessionStartDesc(LocalDateTime after);
 
+    // Dashboard: [username, currentScore, sessionEnd] of the latest sessions started after the given time
+    @Query("SELECT u.username, gs.currentScore, gs.sessionEnd FROM GameSession gs JOIN gs.user u " +
+            "WHERE gs.sessionStart > :after ORDER BY gs.sessionStart DESC")
+    List<Object[]> findRecentGameRows(@Param("after") LocalDateTime after, Pageable pageable);
+
+    // Leaderboard: latest sessions started after the given time, with the player's username
+    @Query("SELECT gs.id AS id, u.username AS username, gs.currentScore AS currentScore, gs.sessionEnd AS sessionEnd " +
+            "FROM GameSession gs LEFT JOIN gs.user u WHERE gs.sessionStart > :after ORDER BY gs.sessionStart DESC")
+    List<RecentGameView> findRecentGames(@Param("after") LocalDateTime after, Pageable pageable);
+
     // Top scores
     @Query("SELECT gs FROM GameSession gs WHERE gs.isCompleted = true ORDER BY gs.currentScore DESC")
     Page<GameSession> findTopScores(Pageable pageable);
@@ -34,6 +50,10 @@ public interface GameSessionRepository extends JpaRepository<GameSession, Long>
     @Query("SELECT gs FROM GameSession gs WHERE gs.isCompleted = true AND gs.user = :user ORDER BY gs.currentScore DESC")
     Page<GameSession> findTopScoresByUser(@Param("user") User user, Pageable pageable);
 
+    // Leaderboard seed: [sessionId, userId, username, currentScore, sessionEnd] of every completed session
+    @Query("SELECT gs.id, u.id, u.username, gs.currentScore, gs.sessionEnd FROM GameSession gs JOIN gs.user u WHERE gs.isCompleted = true")
+    List<Object[]> findLeaderboardRows();
+
     // Statistics
     long countByUser(User user);
     long countByUserAndIsCompleted(User user, Boolean isCompleted);
@@ -49,4 +69,16 @@ public interface GameSessionRepository extends JpaRepository<GameSession, Long>
 
     @Query("SELECT MAX(gs.currentScore) FROM GameSession gs WHERE gs.isCompleted = true")
     Integer findHighestScore();
+
+    // Per-user stats rollup rebuild: [count, score sum, best score] of the user's completed sessions
+    @Query("SELECT COUNT(gs), COALESCE(SUM(gs.currentScore), 0), MAX(gs.currentScore) FROM GameSession gs " +
+            "WHERE gs.isCompleted = true AND gs.user.id = :userId")
+    List<Object[]> findScoreTotalsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT gs.id FROM GameSession gs WHERE gs.isCompleted = true AND gs.user.id = :userId ORDER BY gs.sessionStart DESC, gs.id DESC")
+    List<Long> findCompletedSessionIdsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT DISTINCT gs.user.id FROM GameSession gs WHERE gs.isCompleted = true " +
+            "AND gs.user.id NOT IN (SELECT s.userId FROM UserGameStats s)")
+    List<Long> findUserIdsWithoutGameStats();
 }
\ No newline at end of file
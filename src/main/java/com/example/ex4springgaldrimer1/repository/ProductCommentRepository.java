@@ -2,6 +2,7 @@ package com.example.ex4springgaldrimer1.repository;
 
 import com.example.ex4springgaldrimer1.entity.ProductComment;
 import com.example.ex4springgaldrimer1.enums.CommentStatus;
+import com.example.ex4springgaldrimer1.projection.ReviewView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -43,6 +44,22 @@ public interface ProductCommentRepository extends JpaRepository<ProductComment,
     @Query("SELECT COUNT(pc) FROM ProductComment pc WHERE pc.product.id = :productId AND pc.status = 'APPROVED' AND pc.rating = :rating")
     long countByProductIdAndStatusApprovedAndRating(@Param("productId") Long productId, @Param("rating") Integer rating);
 
+    // Dashboard: [product name, rating, username] of the oldest pending reviews
+    @Query("SELECT p.name, pc.rating, u.username FROM ProductComment pc JOIN pc.product p JOIN pc.user u " +
+            "WHERE pc.status = 'PENDING' ORDER BY pc.timestamp ASC")
+    List<Object[]> findPendingReviewRows(Pageable pageable);
+
+    // Review lists: comment columns with the product name and reviewer username, without loading either entity
+    @Query("SELECT pc.id AS id, p.id AS subjectId, p.name AS subjectName, u.username AS username, pc.title AS title, " +
+            "pc.content AS content, pc.rating AS rating, pc.status AS status, pc.timestamp AS timestamp " +
+            "FROM ProductComment pc JOIN pc.product p JOIN pc.user u WHERE p.id = :productId AND pc.status = :status")
+    List<ReviewView> findReviewsByProductIdAndStatus(@Param("productId") Long productId, @Param("status") CommentStatus status);
+
+    @Query("SELECT pc.id AS id, p.id AS subjectId, p.name AS subjectName, u.username AS username, pc.title AS title, " +
+            "pc.content AS content, pc.rating AS rating, pc.status AS status, pc.timestamp AS timestamp " +
+            "FROM ProductComment pc JOIN pc.product p JOIN pc.user u WHERE pc.status = :status ORDER BY pc.timestamp ASC")
+    List<ReviewView> findReviewsByStatus(@Param("status") CommentStatus status);
+
     // Recent comments
     @Query("SELECT pc FROM ProductComment pc WHERE pc.status = 'APPROVED' ORDER BY pc.timestamp DESC")
     List<ProductComment> findRecentApprovedComments(Pageable pageable);
@@ -4,20 +4,32 @@ import com.example.ex4springgaldrimer1.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
 
     // Basic queries
     Optional<Product> findByBarcode(String barcode);
     boolean existsByBarcode(String barcode);
+    boolean existsByImagePath(String imagePath);
+
+    // Which of the given barcodes are taken, one query for a whole import batch
+    @Query("SELECT p.barcode FROM Product p WHERE p.barcode IN :barcodes")
+    List<String> findExistingBarcodes(@Param("barcodes") Collection<String> barcodes);
+
+    // Products showing a stored image, whose cards change when its variants appear
+    @Query("SELECT p.id FROM Product p WHERE p.imagePath = :imagePath")
+    List<Long> findIdsByImagePath(@Param("imagePath") String imagePath);
 
     // Category queries
     List<Product> findByCategory(String category);
@@ -67,11 +79,57 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
                                   @Param("inStock") Boolean inStock,
                                   Pageable pageable);
 
+    // Which of the given products contain the search phrase, by the same rule as searchWithFilters;
+    // ProductSearchIndex checks its candidates with it
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids AND " +
+            "(LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(p.brand) LIKE LOWER(CONCAT('%', :search, '%')))")
+    List<Long> findIdsContaining(@Param("ids") Collection<Long> ids, @Param("search") String search);
+
+    // Every product containing the search phrase, for phrases the index has no terms for (punctuation only)
+    @Query(value = "SELECT p.id FROM Product p WHERE " +
+            "LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(p.brand) LIKE LOWER(CONCAT('%', :search, '%')) ORDER BY p.id",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE " +
+                    "LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+                    "LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+                    "LOWER(p.brand) LIKE LOWER(CONCAT('%', :search, '%'))")
+    Page<Long> findIdsContaining(@Param("search") String search, Pageable pageable);
+
+    // Search combined with every catalog filter, paged and sorted by the database
+    @Query(value = "SELECT p FROM Product p WHERE " +
+            "(LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(p.brand) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+            "(:category IS NULL OR LOWER(p.category) = LOWER(:category)) AND " +
+            "(:brand IS NULL OR LOWER(p.brand) LIKE LOWER(CONCAT('%', :brand, '%'))) AND " +
+            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
+            "(:inStock IS NULL OR p.inStock = :inStock)",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE " +
+            "(LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(p.brand) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+            "(:category IS NULL OR LOWER(p.category) = LOWER(:category)) AND " +
+            "(:brand IS NULL OR LOWER(p.brand) LIKE LOWER(CONCAT('%', :brand, '%'))) AND " +
+            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
+            "(:inStock IS NULL OR p.inStock = :inStock)")
+    Page<Product> searchWithFilters(@Param("search") String search,
+                                    @Param("category") String category,
+                                    @Param("brand") String brand,
+                                    @Param("minPrice") BigDecimal minPrice,
+                                    @Param("maxPrice") BigDecimal maxPrice,
+                                    @Param("inStock") Boolean inStock,
+                                    Pageable pageable);
+
     // Popular/Featured products
     @Query("SELECT p FROM Product p WHERE p.inStock = true ORDER BY p.createdDate DESC")
     List<Product> findNewestProducts(Pageable pageable);
 
-    @Query("SELECT p FROM Product p WHERE p.inStock = true ORDER BY SIZE(p.comments) DESC")
+    @Query("SELECT p FROM Product p WHERE p.inStock = true ORDER BY p.approvedReviewCount DESC")
     List<Product> findMostReviewedProducts(Pageable pageable);
 
     // Statistics queries
@@ -86,4 +144,31 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     @Query("SELECT MAX(p.price) FROM Product p WHERE p.inStock = true")
     BigDecimal getMaxPrice();
+
+    // Rating aggregates
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET " +
+            "p.approvedReviewCount = p.approvedReviewCount + :delta, " +
+            "p.ratingSum = p.ratingSum + :delta * :rating, " +
+            "p.rating1Count = p.rating1Count + CASE WHEN :rating = 1 THEN :delta ELSE 0 END, " +
+            "p.rating2Count = p.rating2Count + CASE WHEN :rating = 2 THEN :delta ELSE 0 END, " +
+            "p.rating3Count = p.rating3Count + CASE WHEN :rating = 3 THEN :delta ELSE 0 END, " +
+            "p.rating4Count = p.rating4Count + CASE WHEN :rating = 4 THEN :delta ELSE 0 END, " +
+            "p.rating5Count = p.rating5Count + CASE WHEN :rating = 5 THEN :delta ELSE 0 END " +
+            "WHERE p.id = :id")
+    int adjustRatingAggregates(@Param("id") Long id, @Param("rating") int rating, @Param("delta") int delta);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET " +
+            "p.approvedReviewCount = (SELECT COUNT(c) FROM ProductComment c WHERE c.product = p AND c.status = 'APPROVED'), " +
+            "p.ratingSum = COALESCE((SELECT SUM(c.rating) FROM ProductComment c WHERE c.product = p AND c.status = 'APPROVED'), 0), " +
+            "p.rating1Count = (SELECT COUNT(c) FROM ProductComment c WHERE c.product = p AND c.status = 'APPROVED' AND c.rating = 1), " +
+            "p.rating2Count = (SELECT COUNT(c) FROM ProductComment c WHERE c.product = p AND c.status = 'APPROVED' AND c.rating = 2), " +
+            "p.rating3Count = (SELECT COUNT(c) FROM ProductComment c WHERE c.product = p AND c.status = 'APPROVED' AND c.rating = 3), " +
+            "p.rating4Count = (SELECT COUNT(c) FROM ProductComment c WHERE c.product = p AND c.status = 'APPROVED' AND c.rating = 4), " +
+            "p.rating5Count = (SELECT COUNT(c) FROM ProductComment c WHERE c.product = p AND c.status = 'APPROVED' AND c.rating = 5)")
+    int recalculateRatingAggregates();
+
+    @Query("SELECT COALESCE(SUM(p.approvedReviewCount), 0) FROM Product p")
+    long sumApprovedReviewCounts();
 }
\ No newline at end of file
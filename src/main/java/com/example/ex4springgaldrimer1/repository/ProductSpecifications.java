@@ -0,0 +1,61 @@
+package com.example.ex4springgaldrimer1.repository;
+
+import com.example.ex4springgaldrimer1.entity.Product;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Catalog filters as a Specification, matching findWithFilters and searchWithFilters,
+ * so keyset-paged listings can add their seek condition to the same WHERE clause.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    /**
+     * Null arguments are ignored. name matches the product name only; search also matches description and brand.
+     */
+    public static Specification<Product> withFilters(String name, String search, String category, String brand,
+                                                     BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (name != null) {
+                predicates.add(cb.like(cb.lower(root.get("name")), contains(name)));
+            }
+            if (search != null) {
+                String pattern = contains(search);
+                predicates.add(cb.or(
+                        cb.like(cb.lower(root.get("name")), pattern),
+                        cb.like(cb.lower(root.get("description")), pattern),
+                        cb.like(cb.lower(root.get("brand")), pattern)));
+            }
+            if (category != null) {
+                predicates.add(cb.equal(cb.lower(root.get("category")), category.toLowerCase()));
+            }
+            if (brand != null) {
+                predicates.add(cb.like(cb.lower(root.get("brand")), contains(brand)));
+            }
+            if (minPrice != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), minPrice));
+            }
+            if (maxPrice != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("price"), maxPrice));
+            }
+            if (inStock != null) {
+                predicates.add(cb.equal(root.get("inStock"), inStock));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static String contains(String text) {
+        return "%" + text.toLowerCase() + "%";
+    }
+}
@@ -2,6 +2,7 @@ package com.example.ex4springgaldrimer1.repository;
 
 import com.example.ex4springgaldrimer1.entity.StoreComment;
 import com.example.ex4springgaldrimer1.enums.CommentStatus;
+import com.example.ex4springgaldrimer1.projection.StoreReviewView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -57,6 +58,26 @@ public interface StoreCommentRepository extends JpaRepository<StoreComment, Long
     @Query("SELECT COUNT(sc) FROM StoreComment sc WHERE sc.store.id = :storeId AND sc.status = 'APPROVED' AND sc.rating = :rating")
     long countByStoreIdAndStatusApprovedAndRating(@Param("storeId") Long storeId, @Param("rating") Integer rating);
 
+    // Dashboard: [store name, rating, username] of the oldest pending reviews
+    @Query("SELECT s.name, sc.rating, u.username FROM StoreComment sc JOIN sc.store s JOIN sc.user u " +
+            "WHERE sc.status = 'PENDING' ORDER BY sc.timestamp ASC")
+    List<Object[]> findPendingReviewRows(Pageable pageable);
+
+    // Review lists: comment columns with the store name and reviewer username, without loading either entity
+    @Query("SELECT sc.id AS id, s.id AS subjectId, s.name AS subjectName, u.username AS username, sc.title AS title, " +
+            "sc.content AS content, sc.rating AS rating, sc.status AS status, sc.timestamp AS timestamp, " +
+            "sc.serviceRating AS serviceRating, sc.cleanlinessRating AS cleanlinessRating, " +
+            "sc.locationRating AS locationRating, sc.wouldRecommend AS wouldRecommend " +
+            "FROM StoreComment sc JOIN sc.store s JOIN sc.user u WHERE s.id = :storeId AND sc.status = :status")
+    List<StoreReviewView> findReviewsByStoreIdAndStatus(@Param("storeId") Long storeId, @Param("status") CommentStatus status);
+
+    @Query("SELECT sc.id AS id, s.id AS subjectId, s.name AS subjectName, u.username AS username, sc.title AS title, " +
+            "sc.content AS content, sc.rating AS rating, sc.status AS status, sc.timestamp AS timestamp, " +
+            "sc.serviceRating AS serviceRating, sc.cleanlinessRating AS cleanlinessRating, " +
+            "sc.locationRating AS locationRating, sc.wouldRecommend AS wouldRecommend " +
+            "FROM StoreComment sc JOIN sc.store s JOIN sc.user u WHERE sc.status = :status ORDER BY sc.timestamp ASC")
+    List<StoreReviewView> findReviewsByStatus(@Param("status") CommentStatus status);
+
     // Recent comments
     @Query("SELECT sc FROM StoreComment sc WHERE sc.status = 'APPROVED' ORDER BY sc.timestamp DESC")
     List<StoreComment> findRecentApprovedComments(Pageable pageable);
@@ -1,9 +1,12 @@
 package com.example.ex4springgaldrimer1.repository;
 
 import com.example.ex4springgaldrimer1.entity.Store;
+import com.example.ex4springgaldrimer1.projection.StoreSummaryView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -12,7 +15,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface StoreRepository extends JpaRepository<Store, Long> {
+public interface StoreRepository extends JpaRepository<Store, Long>, JpaSpecificationExecutor<Store> {
 
     // Basic queries
     Optional<Store> findByAddress(String address);
@@ -28,6 +31,12 @@ public interface StoreRepository extends JpaRepository<Store, Long> {
     List<Store> findByCityIgnoreCaseAndStateIgnoreCase(String city, String state);
     List<Store> findByZipCode(String zipCode);
 
+    // Store details: other active stores in the same city
+    @Query("SELECT s.id AS id, s.name AS name, s.address AS address FROM Store s " +
+            "WHERE LOWER(s.city) = LOWER(:city) AND s.id <> :storeId AND s.isActive = true ORDER BY s.id")
+    List<StoreSummaryView> findOtherActiveStoresInCity(@Param("city") String city, @Param("storeId") Long storeId,
+                                                       Pageable pageable);
+
     @Query("SELECT DISTINCT s.city FROM Store s WHERE s.isActive = true ORDER BY s.city")
     List<String> findAllActiveCities();
 
@@ -62,6 +71,51 @@ public interface StoreRepository extends JpaRepository<Store, Long> {
                                 @Param("driveThrough") Boolean driveThrough,
                                 Pageable pageable);
 
+    // Search combined with every store filter, paged and sorted by the database
+    @Query(value = "SELECT s FROM Store s WHERE " +
+            "(LOWER(s.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(s.address) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(s.city) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(s.storeManager) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+            "(:city IS NULL OR LOWER(s.city) = LOWER(:city)) AND " +
+            "(:state IS NULL OR LOWER(s.state) = LOWER(:state)) AND " +
+            "(:zipCode IS NULL OR s.zipCode = :zipCode) AND " +
+            "(:isActive IS NULL OR s.isActive = :isActive) AND " +
+            "(:parkingAvailable IS NULL OR s.parkingAvailable = :parkingAvailable) AND " +
+            "(:driveThrough IS NULL OR s.driveThrough = :driveThrough)",
+            countQuery = "SELECT COUNT(s) FROM Store s WHERE " +
+            "(LOWER(s.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(s.address) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(s.city) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(s.storeManager) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+            "(:city IS NULL OR LOWER(s.city) = LOWER(:city)) AND " +
+            "(:state IS NULL OR LOWER(s.state) = LOWER(:state)) AND " +
+            "(:zipCode IS NULL OR s.zipCode = :zipCode) AND " +
+            "(:isActive IS NULL OR s.isActive = :isActive) AND " +
+            "(:parkingAvailable IS NULL OR s.parkingAvailable = :parkingAvailable) AND " +
+            "(:driveThrough IS NULL OR s.driveThrough = :driveThrough)")
+    Page<Store> searchWithFilters(@Param("search") String search,
+                                  @Param("city") String city,
+                                  @Param("state") String state,
+                                  @Param("zipCode") String zipCode,
+                                  @Param("isActive") Boolean isActive,
+                                  @Param("parkingAvailable") Boolean parkingAvailable,
+                                  @Param("driveThrough") Boolean driveThrough,
+                                  Pageable pageable);
+
+    // Facet counts: one row per (city, state, parking, drive-through) combination matching search, ZIP and status
+    @Query("SELECT s.city, s.state, s.parkingAvailable, s.driveThrough, COUNT(s) FROM Store s WHERE " +
+            "(:search IS NULL OR LOWER(s.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(s.address) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(s.city) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(s.storeManager) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+            "(:zipCode IS NULL OR s.zipCode = :zipCode) AND " +
+            "(:isActive IS NULL OR s.isActive = :isActive) " +
+            "GROUP BY s.city, s.state, s.parkingAvailable, s.driveThrough")
+    List<Object[]> countFacetCombinations(@Param("search") String search,
+                                          @Param("zipCode") String zipCode,
+                                          @Param("isActive") Boolean isActive);
+
     // Feature-based queries
     List<Store> findByParkingAvailable(Boolean parkingAvailable);
     List<Store> findByDriveThrough(Boolean driveThrough);
@@ -92,16 +146,42 @@ public interface StoreRepository extends JpaRepository<Store, Long> {
     Double getAverageCommentsPerStore();
 
     // Top rated stores
-    @Query("SELECT s FROM Store s WHERE s.isActive = true AND SIZE(s.comments) > 0 " +
-            "ORDER BY (SELECT AVG(CAST(c.rating AS double)) FROM StoreComment c WHERE c.store = s AND c.status = 'APPROVED') DESC")
+    @Query("SELECT s FROM Store s WHERE s.isActive = true AND s.approvedReviewCount > 0 " +
+            "ORDER BY (CAST(s.ratingSum AS double) / s.approvedReviewCount) DESC")
     List<Store> findTopRatedStores(Pageable pageable);
 
     // Most reviewed stores
-    @Query("SELECT s FROM Store s WHERE s.isActive = true " +
-            "ORDER BY (SELECT COUNT(c) FROM StoreComment c WHERE c.store = s AND c.status = 'APPROVED') DESC")
+    @Query("SELECT s FROM Store s WHERE s.isActive = true ORDER BY s.approvedReviewCount DESC")
     List<Store> findMostReviewedStores(Pageable pageable);
 
     // Recently opened stores
     @Query("SELECT s FROM Store s WHERE s.isActive = true ORDER BY s.openingDate DESC")
     List<Store> findRecentlyOpenedStores(Pageable pageable);
+
+    // Rating aggregates
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Store s SET " +
+            "s.approvedReviewCount = s.approvedReviewCount + :delta, " +
+            "s.ratingSum = s.ratingSum + :delta * :rating, " +
+            "s.rating1Count = s.rating1Count + CASE WHEN :rating = 1 THEN :delta ELSE 0 END, " +
+            "s.rating2Count = s.rating2Count + CASE WHEN :rating = 2 THEN :delta ELSE 0 END, " +
+            "s.rating3Count = s.rating3Count + CASE WHEN :rating = 3 THEN :delta ELSE 0 END, " +
+            "s.rating4Count = s.rating4Count + CASE WHEN :rating = 4 THEN :delta ELSE 0 END, " +
+            "s.rating5Count = s.rating5Count + CASE WHEN :rating = 5 THEN :delta ELSE 0 END " +
+            "WHERE s.id = :id")
+    int adjustRatingAggregates(@Param("id") Long id, @Param("rating") int rating, @Param("delta") int delta);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Store s SET " +
+            "s.approvedReviewCount = (SELECT COUNT(c) FROM StoreComment c WHERE c.store = s AND c.status = 'APPROVED'), " +
+            "s.ratingSum = COALESCE((SELECT SUM(c.rating) FROM StoreComment c WHERE c.store = s AND c.status = 'APPROVED'), 0), " +
+            "s.rating1Count = (SELECT COUNT(c) FROM StoreComment c WHERE c.store = s AND c.status = 'APPROVED' AND c.rating = 1), " +
+            "s.rating2Count = (SELECT COUNT(c) FROM StoreComment c WHERE c.store = s AND c.status = 'APPROVED' AND c.rating = 2), " +
+            "s.rating3Count = (SELECT COUNT(c) FROM StoreComment c WHERE c.store = s AND c.status = 'APPROVED' AND c.rating = 3), " +
+            "s.rating4Count = (SELECT COUNT(c) FROM StoreComment c WHERE c.store = s AND c.status = 'APPROVED' AND c.rating = 4), " +
+            "s.rating5Count = (SELECT COUNT(c) FROM StoreComment c WHERE c.store = s AND c.status = 'APPROVED' AND c.rating = 5)")
+    int recalculateRatingAggregates();
+
+    @Query("SELECT COALESCE(SUM(s.approvedReviewCount), 0) FROM Store s")
+    long sumApprovedReviewCounts();
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.example.ex4springgaldrimer1.repository;
+
+import com.example.ex4springgaldrimer1.entity.Store;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Store filters as a Specification, matching findWithFilters and searchWithFilters,
+ * so keyset-paged listings can add their seek condition to the same WHERE clause.
+ */
+public final class StoreSpecifications {
+
+    private StoreSpecifications() {
+    }
+
+    /**
+     * Null arguments are ignored. name matches the store name only; search also matches address, city and manager.
+     */
+    public static Specification<Store> withFilters(String name, String search, String city, String state, String zipCode,
+                                                   Boolean isActive, Boolean parkingAvailable, Boolean driveThrough) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (name != null) {
+                predicates.add(cb.like(cb.lower(root.get("name")), contains(name)));
+            }
+            if (search != null) {
+                String pattern = contains(search);
+                predicates.add(cb.or(
+                        cb.like(cb.lower(root.get("name")), pattern),
+                        cb.like(cb.lower(root.get("address")), pattern),
+                        cb.like(cb.lower(root.get("city")), pattern),
+                        cb.like(cb.lower(root.get("storeManager")), pattern)));
+            }
+            if (city != null) {
+                predicates.add(cb.equal(cb.lower(root.get("city")), city.toLowerCase()));
+            }
+            if (state != null) {
+                predicates.add(cb.equal(cb.lower(root.get("state")), state.toLowerCase()));
+            }
+            if (zipCode != null) {
+                predicates.add(cb.equal(root.get("zipCode"), zipCode));
+            }
+            if (isActive != null) {
+                predicates.add(cb.equal(root.get("isActive"), isActive));
+            }
+            if (parkingAvailable != null) {
+                predicates.add(cb.equal(root.get("parkingAvailable"), parkingAvailable));
+            }
+            if (driveThrough != null) {
+                predicates.add(cb.equal(root.get("driveThrough"), driveThrough));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static String contains(String text) {
+        return "%" + text.toLowerCase() + "%";
+    }
+}
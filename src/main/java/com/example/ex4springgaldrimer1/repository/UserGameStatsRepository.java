@@ -0,0 +1,25 @@
+package com.example.ex4springgaldrimer1.repository;
+
+import com.example.ex4springgaldrimer1.entity.UserGameStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserGameStatsRepository extends JpaRepository<UserGameStats, Long> {
+
+    // Row lock, so two games ending at once for the same user cannot lose an update
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UserGameStats s WHERE s.userId = :userId")
+    Optional<UserGameStats> findByUserIdForUpdate(@Param("userId") Long userId);
+
+    // Rows written while recent sessions were stored as a comma-separated string
+    @Query("SELECT s.userId FROM UserGameStats s WHERE s.gamesPlayed > 0 AND s.recentSessionIds IS NULL")
+    List<Long> findUserIdsWithoutRecentSessions();
+}
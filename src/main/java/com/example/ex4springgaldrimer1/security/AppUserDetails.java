@@ -0,0 +1,58 @@
+package com.example.ex4springgaldrimer1.security;
+
+import com.example.ex4springgaldrimer1.entity.User;
+import com.example.ex4springgaldrimer1.enums.Role;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+/**
+ * Security principal that also carries the user's id and role, so pages that only need to know
+ * who is logged in can read it from the session instead of querying the users table.
+ */
+public class AppUserDetails extends org.springframework.security.core.userdetails.User {
+
+    private final Long id;
+    private final Role role;
+
+    public AppUserDetails(User user) {
+        super(user.getUsername(),
+                user.getPassword(),
+                Boolean.TRUE.equals(user.getEnabled()),
+                true,
+                true,
+                Boolean.TRUE.equals(user.getEnabled()),
+                List.of(new SimpleGrantedAuthority(user.getRole().getAuthority())));
+        this.id = user.getId();
+        this.role = user.getRole();
+    }
+
+    // Copy with its own password field, used by the user cache
+    public AppUserDetails(AppUserDetails other) {
+        super(other.getUsername(),
+                other.getPassword(),
+                other.isEnabled(),
+                other.isAccountNonExpired(),
+                other.isCredentialsNonExpired(),
+                other.isAccountNonLocked(),
+                other.getAuthorities());
+        this.id = other.getId();
+        this.role = other.getRole();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public boolean isAdmin() {
+        return role == Role.ADMIN;
+    }
+
+    public boolean isCustomer() {
+        return role == Role.CUSTOMER;
+    }
+}
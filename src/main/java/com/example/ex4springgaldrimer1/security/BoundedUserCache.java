@@ -0,0 +1,73 @@
+package com.example.ex4springgaldrimer1.security;
+
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory UserCache for the authentication provider, so repeated logins from the same accounts
+ * do not reload the user every time. Holds at most maxSize users, evicting the least recently used,
+ * and drops entries older than the TTL.
+ * Entries are stored and returned as copies because Spring Security erases the password of the
+ * principal it hands out after a successful login.
+ */
+public class BoundedUserCache implements UserCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+
+    private record Entry(UserDetails user, long expiresAt) {
+    }
+
+    public BoundedUserCache(int maxSize, long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > BoundedUserCache.this.maxSize;
+            }
+        };
+    }
+
+    @Override
+    public synchronized UserDetails getUserFromCache(String username) {
+        Entry entry = entries.get(username);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt() >= 0) {
+            entries.remove(username);
+            return null;
+        }
+        return copyOf(entry.user());
+    }
+
+    @Override
+    public synchronized void putUserInCache(UserDetails user) {
+        if (maxSize <= 0 || user.getPassword() == null) {
+            return;
+        }
+        entries.put(user.getUsername(), new Entry(copyOf(user), System.nanoTime() + ttlNanos));
+    }
+
+    @Override
+    public synchronized void removeUserFromCache(String username) {
+        entries.remove(username);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static UserDetails copyOf(UserDetails user) {
+        if (user instanceof AppUserDetails appUser) {
+            return new AppUserDetails(appUser);
+        }
+        return User.withUserDetails(user).build();
+    }
+}
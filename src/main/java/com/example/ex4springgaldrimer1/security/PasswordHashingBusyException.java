@@ -0,0 +1,18 @@
+package com.example.ex4springgaldrimer1.security;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown by PooledPasswordEncoder when its hashing limit is reached. An AuthenticationException, so a
+ * login that needed a re-hash fails through the login failure handler; registration catches it and asks
+ * the user to retry. Anywhere else it is answered with 503.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PasswordHashingBusyException extends AuthenticationServiceException {
+
+    public PasswordHashingBusyException() {
+        super("Too many password requests right now, please try again in a moment");
+    }
+}
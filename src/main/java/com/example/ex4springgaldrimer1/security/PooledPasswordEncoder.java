@@ -0,0 +1,189 @@
+package com.example.ex4springgaldrimer1.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BCrypt encoder that limits how many new passwords are hashed at once. Hashes run on a small pool with a
+ * bounded queue, so a burst of registrations cannot occupy every CPU. The calling thread still waits for
+ * its hash: this is a concurrency limit, not offloading, and frees no request threads. When the queue is
+ * full, encode fails fast with PasswordHashingBusyException instead of piling up work.
+ * Checking a password at login still runs inline, it is one hash per request and must not fail on load.
+ */
+public class PooledPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledPasswordEncoder.class);
+
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+
+    private final BCryptPasswordEncoder delegate;
+    private final int cost;
+    private final ThreadPoolExecutor executor;
+    private final HashStats stats = new HashStats();
+
+    public PooledPasswordEncoder(int cost, int threads, int queueCapacity) {
+        this.delegate = new BCryptPasswordEncoder(cost);
+        this.cost = cost;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Calibration
+
+    /**
+     * Pick the highest cost whose hash time stays within the target, but never below minCost.
+     * Times the cheapest cost and doubles the estimate per step, since each step doubles the work.
+     */
+    public static int calibrateCost(long targetMillis, int minCost, int maxCost) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minCost);
+        probe.encode(CALIBRATION_PASSWORD); // warm up
+
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            probe.encode(CALIBRATION_PASSWORD);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+
+        double estimatedMillis = fastest / 1_000_000.0;
+        int cost = minCost;
+        while (cost < maxCost && estimatedMillis * 2 <= targetMillis) {
+            cost++;
+            estimatedMillis *= 2;
+        }
+
+        log.info("BCrypt cost {} selected (~{} ms per hash, target {} ms)", cost, Math.round(estimatedMillis), targetMillis);
+        return cost;
+    }
+
+    // PasswordEncoder
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        long submitted = System.nanoTime();
+        Future<String> hash;
+        try {
+            hash = executor.submit(() -> {
+                long started = System.nanoTime();
+                try {
+                    return delegate.encode(rawPassword);
+                } finally {
+                    stats.record(started - submitted, System.nanoTime() - started);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            stats.rejected.incrementAndGet();
+            throw new PasswordHashingBusyException();
+        }
+
+        try {
+            return hash.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Password hashing failed", e.getCause());
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return delegate.matches(rawPassword, encodedPassword);
+    }
+
+    /**
+     * Hashes weaker than the current cost are re-hashed on the next successful login.
+     * The upgrade is skipped while the pool is saturated so it can never make a login fail; it is retried next time.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword) && executor.getQueue().remainingCapacity() > 0;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    // Metrics
+    public HashStats getStats() {
+        return stats;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getQueueCapacity() {
+        return executor.getQueue().size() + executor.getQueue().remainingCapacity();
+    }
+
+    public int getActiveHashes() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Hash counts and latencies since startup. Wait is the time spent queued, hash is the BCrypt work itself.
+     */
+    public static class HashStats {
+
+        private final AtomicLong hashes = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong totalHashNanos = new AtomicLong();
+        private final AtomicLong maxHashNanos = new AtomicLong();
+
+        void record(long waitNanos, long hashNanos) {
+            hashes.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            totalHashNanos.addAndGet(hashNanos);
+            maxHashNanos.accumulateAndGet(hashNanos, Math::max);
+        }
+
+        public long getHashes() {
+            return hashes.get();
+        }
+
+        public long getRejected() {
+            return rejected.get();
+        }
+
+        public double getAverageWaitMillis() {
+            long count = hashes.get();
+            return count == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / count;
+        }
+
+        public double getAverageHashMillis() {
+            long count = hashes.get();
+            return count == 0 ? 0.0 : totalHashNanos.get() / 1_000_000.0 / count;
+        }
+
+        public double getMaxHashMillis() {
+            return maxHashNanos.get() / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.ex4springgaldrimer1.service;
+
+import com.example.ex4springgaldrimer1.entity.GameQuestion;
+import com.example.ex4springgaldrimer1.entity.GameSession;
+import com.example.ex4springgaldrimer1.entity.QuestionIdSet;
+
+/**
+ * In-memory state of a game in progress. Answers change this object only; ActiveGameStore writes it
+ * to game_sessions in the background, and ending the game copies it onto the entity.
+ * Exposes the same progress getters as GameSession, so the play page can render either.
+ */
+public class ActiveGame {
+
+    private final Long id;
+    private final Long userId;
+    private final int totalQuestions;
+
+    private int currentScore;
+    private int questionsAnswered;
+    private int correctAnswers;
+    private final QuestionIdSet askedQuestionIds = new QuestionIdSet();
+
+    // The question handed out and not answered yet, so answering it needs no lookup
+    private Long pendingQuestionId;
+    private String pendingCorrectAnswer;
+    private int pendingPoints;
+
+    private boolean ended;
+    private long version;
+    private long flushedVersion;
+    private volatile long lastAccess = System.nanoTime();
+
+    ActiveGame(GameSession session) {
+        this.id = session.getId();
+        this.userId = session.getUser().getId();
+        this.totalQuestions = session.getTotalQuestions();
+        this.currentScore = session.getCurrentScore() != null ? session.getCurrentScore() : 0;
+        this.questionsAnswered = session.getQuestionsAnswered() != null ? session.getQuestionsAnswered() : 0;
+        this.correctAnswers = session.getCorrectAnswers() != null ? session.getCorrectAnswers() : 0;
+        if (session.getAskedQuestionIds() != null) {
+            for (long questionId : session.getAskedQuestionIds().toArray()) {
+                askedQuestionIds.add(questionId);
+            }
+        }
+    }
+
+    // Game play
+
+    synchronized boolean hasAsked(long questionId) {
+        return askedQuestionIds.contains(questionId);
+    }
+
+    synchronized Long getPendingQuestionId() {
+        return pendingQuestionId;
+    }
+
+    synchronized void askQuestion(GameQuestion question) {
+        askedQuestionIds.add(question.getId());
+        pendingQuestionId = question.getId();
+        pendingCorrectAnswer = question.getCorrectAnswer();
+        pendingPoints = question.getPoints() != null ? question.getPoints() : 0;
+        changed();
+    }
+
+    /**
+     * Record an answer to the pending question and return its correct answer. Returns null, recording nothing,
+     * if the question is not the pending one; the caller then checks the answer itself.
+     */
+    synchronized String answerPending(long questionId, String answer) {
+        checkNotEnded();
+        if (pendingQuestionId == null || pendingQuestionId != questionId) {
+            return null;
+        }
+        String correctAnswer = pendingCorrectAnswer;
+        recordAnswer(correctAnswer.equalsIgnoreCase(answer.trim()), pendingPoints);
+        return correctAnswer;
+    }
+
+    synchronized void recordAnswer(boolean correct, int points) {
+        checkNotEnded();
+        questionsAnswered++;
+        if (correct) {
+            correctAnswers++;
+            currentScore += points;
+        }
+        pendingQuestionId = null;
+        pendingCorrectAnswer = null;
+        changed();
+    }
+
+    private void checkNotEnded() {
+        if (ended) {
+            throw new RuntimeException("Game session is already completed: " + id);
+        }
+    }
+
+    private void changed() {
+        version++;
+        lastAccess = System.nanoTime();
+    }
+
+    // Persistence
+
+    /**
+     * Copy the state onto the session entity and stop accepting answers; called when the game ends.
+     * Nothing is discarded, so reopen() can undo this if the ending transaction rolls back.
+     */
+    synchronized void endInto(GameSession session) {
+        ended = true;
+        session.setCurrentScore(currentScore);
+        session.setQuestionsAnswered(questionsAnswered);
+        session.setCorrectAnswers(correctAnswers);
+        QuestionIdSet asked = new QuestionIdSet();
+        for (long questionId : askedQuestionIds.toArray()) {
+            asked.add(questionId);
+        }
+        session.setAskedQuestionIds(asked);
+    }
+
+    synchronized void reopen() {
+        ended = false;
+    }
+
+    /**
+     * Row values for the background UPDATE, or null if nothing changed since the last flush.
+     */
+    synchronized Object[] unflushedRow() {
+        if (ended || version == flushedVersion) {
+            return null;
+        }
+        return new Object[]{currentScore, questionsAnswered, correctAnswers, askedQuestionIds.encode(), id, version};
+    }
+
+    synchronized void markFlushed(long flushed) {
+        flushedVersion = Math.max(flushedVersion, flushed);
+    }
+
+    synchronized boolean isDirty() {
+        return !ended && version != flushedVersion;
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    void touch() {
+        lastAccess = System.nanoTime();
+    }
+
+    // Progress, as on GameSession
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public synchronized Integer getCurrentScore() {
+        return currentScore;
+    }
+
+    public synchronized Integer getQuestionsAnswered() {
+        return questionsAnswered;
+    }
+
+    public synchronized Integer getCorrectAnswers() {
+        return correctAnswers;
+    }
+
+    public Integer getTotalQuestions() {
+        return totalQuestions;
+    }
+
+    public synchronized double getAccuracyPercentage() {
+        if (questionsAnswered == 0) return 0.0;
+        return (double) correctAnswers / questionsAnswered * 100.0;
+    }
+
+    public synchronized boolean isGameOver() {
+        return ended || questionsAnswered >= totalQuestions;
+    }
+
+    public synchronized int getRemainingQuestions() {
+        return Math.max(0, totalQuestions - questionsAnswered);
+    }
+}
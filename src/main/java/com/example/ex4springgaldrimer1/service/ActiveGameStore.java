@@ -0,0 +1,179 @@
+package com.example.ex4springgaldrimer1.service;
+
+import com.example.ex4springgaldrimer1.entity.GameSession;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Games in progress, kept in memory and written behind to game_sessions.
+ * Every question asked or answered appends the session id to a bounded queue; a background thread drains it,
+ * collapses repeated ids and writes the latest state of each game in JDBC batches. If the queue is full the
+ * change is not dropped: the next flush scans every game for unwritten changes instead.
+ * Ending a game does not depend on this thread, GameService copies the in-memory state onto the entity
+ * in the ending transaction, and background writes never touch a completed row.
+ */
+@Component
+public class ActiveGameStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ActiveGameStore.class);
+
+    private static final String UPDATE_SQL = "UPDATE game_sessions SET current_score = ?, questions_answered = ?, " +
+            "correct_answers = ?, asked_questions = ?, asked_question_ids = NULL WHERE id = ? AND is_completed = false";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.game.write-behind.flush-millis:500}")
+    private long flushMillis;
+
+    @Value("${app.game.write-behind.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.game.write-behind.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.game.write-behind.idle-minutes:30}")
+    private long idleMinutes;
+
+    private final Map<Long, ActiveGame> games = new ConcurrentHashMap<>();
+    private BlockingQueue<Long> changes;
+    private volatile boolean overflow;
+    private volatile boolean running;
+    private Thread flusher;
+
+    // Lifecycle
+    @PostConstruct
+    public void start() {
+        changes = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        running = true;
+        flusher = new Thread(this::runFlusher, "game-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(5));
+        flush(games.keySet());
+    }
+
+    // Games
+    public ActiveGame get(Long sessionId) {
+        ActiveGame game = games.get(sessionId);
+        if (game != null) {
+            game.touch();
+        }
+        return game;
+    }
+
+    /**
+     * The in-memory game for a session loaded from the database, created on first use.
+     */
+    public ActiveGame load(GameSession session) {
+        return games.computeIfAbsent(session.getId(), id -> new ActiveGame(session));
+    }
+
+    /**
+     * Take the game out of memory, once the state it copied onto the entity is committed.
+     */
+    public ActiveGame remove(Long sessionId) {
+        return sessionId != null ? games.remove(sessionId) : null;
+    }
+
+    public int size() {
+        return games.size();
+    }
+
+    /**
+     * Queue a write of the game's current state.
+     */
+    public void changed(ActiveGame game) {
+        if (!changes.offer(game.getId())) {
+            overflow = true;
+        }
+    }
+
+    // Background flush
+    private void runFlusher() {
+        while (running) {
+            try {
+                Long first = changes.poll(flushMillis, TimeUnit.MILLISECONDS);
+                Set<Long> sessionIds = new LinkedHashSet<>();
+                if (first != null) {
+                    sessionIds.add(first);
+                    List<Long> drained = new ArrayList<>();
+                    changes.drainTo(drained);
+                    sessionIds.addAll(drained);
+                }
+                if (overflow) {
+                    overflow = false;
+                    sessionIds.addAll(games.keySet());
+                }
+                flush(sessionIds);
+                evictIdle();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Error writing active games", e);
+            }
+        }
+    }
+
+    private void flush(Collection<Long> sessionIds) {
+        List<ActiveGame> pending = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (Long sessionId : sessionIds) {
+            ActiveGame game = games.get(sessionId);
+            Object[] row = game != null ? game.unflushedRow() : null;
+            if (row != null) {
+                pending.add(game);
+                rows.add(row);
+            }
+        }
+
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            int to = Math.min(rows.size(), from + batchSize);
+            List<Object[]> batch = rows.subList(from, to);
+            try {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, batch.stream()
+                        .map(row -> new Object[]{row[0], row[1], row[2], row[3], row[4]})
+                        .toList());
+                for (int i = from; i < to; i++) {
+                    pending.get(i).markFlushed((Long) rows.get(i)[5]);
+                }
+            } catch (DataAccessException e) {
+                // Left unflushed; the next cycle scans every game and retries
+                overflow = true;
+                log.warn("Error writing active games, will retry: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Games nobody touched for a while are dropped once written; they are reloaded on the next visit
+    private void evictIdle() {
+        long idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+        long now = System.nanoTime();
+        games.entrySet().removeIf(entry -> now - entry.getValue().getLastAccess() > idleNanos && !entry.getValue().isDirty());
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.ex4springgaldrimer1.service;
+
+import com.example.ex4springgaldrimer1.csv.CsvWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Catalog and review dumps for downstream analytics. Rows are read through a forward-only JDBC result set that
+ * streams from the server and written straight to a gzip stream as CSV or NDJSON, so heap use stays the same
+ * whatever the size of the table. Column names come from the query, lower-cased.
+ */
+@Service
+public class CatalogExportService {
+
+    public enum Dataset {
+        PRODUCTS("SELECT id, barcode, name, category, brand, price, stock_quantity, in_stock, weight_kg, " +
+                "description, image_path, created_date, approved_review_count, rating_sum " +
+                "FROM products ORDER BY id"),
+        STORES("SELECT id, name, address, city, state, zip_code, phone, email, working_hours, working_days, " +
+                "store_manager, opening_date, is_active, store_size_sqft, parking_available, drive_through, " +
+                "approved_review_count, rating_sum FROM stores ORDER BY id"),
+        REVIEWS("SELECT 'product' AS subject_type, c.id, c.product_id AS subject_id, p.name AS subject_name, " +
+                "u.username, c.rating, c.status, c.title, c.content, c.timestamp AS created_at " +
+                "FROM product_comments c JOIN products p ON p.id = c.product_id JOIN users u ON u.id = c.user_id " +
+                "UNION ALL " +
+                "SELECT 'store', c.id, c.store_id, s.name, u.username, c.rating, c.status, c.title, c.content, c.timestamp " +
+                "FROM store_comments c JOIN stores s ON s.id = c.store_id JOIN users u ON u.id = c.user_id");
+
+        private final String sql;
+
+        Dataset(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    public enum Format {
+        CSV("csv"), NDJSON("ndjson");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    // Compressed output is buffered in blocks this size before it reaches the response
+    private static final int GZIP_BUFFER_BYTES = 64 * 1024;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Connector/J streams a result set row by row only with this fetch size, unless the URL sets useCursorFetch,
+    // which would turn on server-side prepared statements for every query; other sizes read the whole result
+    private static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    @Value("${app.export.fetch-size:1000}")
+    private int fetchSize;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Write the whole dataset, gzip-compressed, to the output stream. Returns the number of rows written.
+     */
+    public long export(Dataset dataset, Format format, OutputStream output) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(output, GZIP_BUFFER_BYTES);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+        RowWriter rows = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+
+        Long count;
+        try {
+            count = jdbcTemplate.query(connection -> prepareStreaming(connection, dataset.sql), (ResultSetExtractor<Long>) rs -> {
+                List<String> columns = columnNames(rs.getMetaData());
+                int[] types = columnTypes(rs.getMetaData());
+                Object[] values = new Object[columns.size()];
+                long written = 0;
+                try {
+                    rows.start(columns);
+                    while (rs.next()) {
+                        for (int i = 0; i < values.length; i++) {
+                            values[i] = readValue(rs, i + 1, types[i]);
+                        }
+                        rows.write(columns, values);
+                        written++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return written;
+            });
+        } catch (UncheckedIOException e) {
+            // Thrown from the row callback, which cannot throw IOException
+            throw e.getCause();
+        }
+
+        writer.flush();
+        gzip.finish();
+        output.flush();
+        return count != null ? count : 0;
+    }
+
+    // The fetch size is set on the export statement only, never on the shared connection settings
+    private PreparedStatement prepareStreaming(Connection connection, String sql) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+        statement.setFetchSize(mysql ? MYSQL_STREAMING_FETCH_SIZE : fetchSize);
+        return statement;
+    }
+
+    private static List<String> columnNames(ResultSetMetaData meta) throws SQLException {
+        List<String> columns = new ArrayList<>(meta.getColumnCount());
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            columns.add(meta.getColumnLabel(i).toLowerCase(Locale.ROOT));
+        }
+        return columns;
+    }
+
+    private static int[] columnTypes(ResultSetMetaData meta) throws SQLException {
+        int[] types = new int[meta.getColumnCount()];
+        for (int i = 1; i <= types.length; i++) {
+            types[i - 1] = meta.getColumnType(i);
+        }
+        return types;
+    }
+
+    // Plain values only: text columns as String, timestamps as ISO local date-times
+    private static Object readValue(ResultSet rs, int column, int type) throws SQLException {
+        switch (type) {
+            case Types.CLOB, Types.NCLOB, Types.LONGVARCHAR, Types.LONGNVARCHAR:
+                return rs.getString(column);
+            case Types.TIMESTAMP:
+                LocalDateTime value = rs.getObject(column, LocalDateTime.class);
+                return value != null ? value.toString() : null;
+            default:
+                return rs.getObject(column);
+        }
+    }
+
+    // Row writers
+
+    private interface RowWriter {
+
+        void start(List<String> columns) throws IOException;
+
+        void write(List<String> columns, Object[] values) throws IOException;
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+
+        private final CsvWriter csv;
+
+        CsvRowWriter(Writer writer) {
+            this.csv = new CsvWriter(writer);
+        }
+
+        @Override
+        public void start(List<String> columns) throws IOException {
+            csv.writeRecord(columns);
+        }
+
+        @Override
+        public void write(List<String> columns, Object[] values) throws IOException {
+            csv.writeRecord(Arrays.asList(values));
+        }
+    }
+
+    private class NdjsonRowWriter implements RowWriter {
+
+        private final Writer writer;
+        private JsonGenerator json;
+
+        NdjsonRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start(List<String> columns) throws IOException {
+            json = objectMapper.getFactory().createGenerator(writer);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void write(List<String> columns, Object[] values) throws IOException {
+            json.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                json.writeFieldName(columns.get(i));
+                json.writeObject(values[i]);
+            }
+            json.writeEndObject();
+            json.flush();
+            writer.write('\n');
+        }
+    }
+}
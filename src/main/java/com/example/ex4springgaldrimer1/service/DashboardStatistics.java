@@ -0,0 +1,307 @@
+package com.example.ex4springgaldrimer1.service;
+
+import com.example.ex4springgaldrimer1.enums.CommentStatus;
+import com.example.ex4springgaldrimer1.enums.Role;
+import com.example.ex4springgaldrimer1.repository.GameQuestionRepository;
+import com.example.ex4springgaldrimer1.repository.GameSessionRepository;
+import com.example.ex4springgaldrimer1.repository.ProductCommentRepository;
+import com.example.ex4springgaldrimer1.repository.ProductRepository;
+import com.example.ex4springgaldrimer1.repository.StoreCommentRepository;
+import com.example.ex4springgaldrimer1.repository.StoreRepository;
+import com.example.ex4springgaldrimer1.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Immutable snapshot of the admin dashboard figures: entity totals, pending review queues and recent games.
+ * The admin product and store listings read their summary cards from it too.
+ * The services mark it stale after a committed write that changes one of the figures, and it also expires
+ * after a configurable age to pick up rows changed outside the services. A stale snapshot is rebuilt on the
+ * next read, once, so the dashboard costs no queries while nothing changes.
+ */
+@Component
+public class DashboardStatistics {
+
+    // Entries listed in the recent games and pending review panels
+    private static final int LIST_SIZE = 5;
+
+    // Recent games look back this many days
+    private static final int RECENT_GAME_DAYS = 7;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private GameQuestionRepository gameQuestionRepository;
+
+    @Autowired
+    private GameSessionRepository gameSessionRepository;
+
+    @Autowired
+    private ProductCommentRepository productCommentRepository;
+
+    @Autowired
+    private StoreCommentRepository storeCommentRepository;
+
+    @Value("${app.dashboard-stats.max-age-seconds:60}")
+    private long maxAgeSeconds;
+
+    private volatile Snapshot snapshot;
+    private volatile long builtAt;
+    private volatile boolean stale = true;
+
+    // One rebuild at a time; a lock rather than a monitor, since it is held across the dashboard queries
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    // Reads
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && !stale && System.nanoTime() - builtAt < maxAgeSeconds * 1_000_000_000L) {
+            return current;
+        }
+        return rebuild();
+    }
+
+    private Snapshot rebuild() {
+        rebuildLock.lock();
+        try {
+            return rebuildLocked();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private Snapshot rebuildLocked() {
+        // Another thread may have rebuilt while this one waited
+        if (snapshot != null && !stale && System.nanoTime() - builtAt < maxAgeSeconds * 1_000_000_000L) {
+            return snapshot;
+        }
+
+        // Cleared first, so a write committed while the queries run marks the new snapshot stale again
+        stale = false;
+        long started = System.nanoTime();
+        Pageable firstEntries = PageRequest.of(0, LIST_SIZE);
+
+        Snapshot rebuilt = new Snapshot(
+                userRepository.count(),
+                userRepository.countByRole(Role.CUSTOMER),
+                productRepository.count(),
+                storeRepository.count(),
+                storeRepository.countByIsActive(true),
+                storeRepository.countActiveStoresWithParking(),
+                storeRepository.countActiveStoresWithDriveThrough(),
+                gameQuestionRepository.count(),
+                gameSessionRepository.count(),
+                productCommentRepository.countByStatus(CommentStatus.PENDING),
+                storeCommentRepository.countByStatus(CommentStatus.PENDING),
+                gameSessionRepository.findRecentGameRows(LocalDateTime.now().minusDays(RECENT_GAME_DAYS), firstEntries)
+                        .stream().map(row -> new RecentGame((String) row[0], (Integer) row[1], (LocalDateTime) row[2])).toList(),
+                productCommentRepository.findPendingReviewRows(firstEntries)
+                        .stream().map(row -> new PendingReview((String) row[0], (Integer) row[1], (String) row[2])).toList(),
+                storeCommentRepository.findPendingReviewRows(firstEntries)
+                        .stream().map(row -> new PendingReview((String) row[0], (Integer) row[1], (String) row[2])).toList(),
+                LocalDateTime.now());
+
+        snapshot = rebuilt;
+        builtAt = started;
+        return rebuilt;
+    }
+
+    // Invalidation
+
+    /**
+     * Rebuild on the next read. Inside a transaction the snapshot is marked again after commit,
+     * so a rebuild that ran before the commit does not keep the old figures.
+     */
+    public void markStale() {
+        stale = true;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stale = true;
+                }
+            });
+        }
+    }
+
+    // Snapshot
+
+    /**
+     * Dashboard figures at one point in time. Lists hold plain values, not entities,
+     * so they can be shared between requests.
+     */
+    public static class Snapshot {
+
+        private final long totalUsers;
+        private final long totalCustomers;
+        private final long totalProducts;
+        private final long totalStores;
+        private final long activeStores;
+        private final long storesWithParking;
+        private final long storesWithDriveThrough;
+        private final long totalGameQuestions;
+        private final long totalGamesPlayed;
+        private final long pendingProductReviewCount;
+        private final long pendingStoreReviewCount;
+        private final List<RecentGame> recentGames;
+        private final List<PendingReview> pendingProductReviews;
+        private final List<PendingReview> pendingStoreReviews;
+        private final LocalDateTime takenAt;
+
+        Snapshot(long totalUsers, long totalCustomers, long totalProducts, long totalStores, long activeStores,
+                 long storesWithParking, long storesWithDriveThrough, long totalGameQuestions, long totalGamesPlayed, long pendingProductReviewCount, long pendingStoreReviewCount,
+                 List<RecentGame> recentGames, List<PendingReview> pendingProductReviews, List<PendingReview> pendingStoreReviews,
+                 LocalDateTime takenAt) {
+            this.totalUsers = totalUsers;
+            this.totalCustomers = totalCustomers;
+            this.totalProducts = totalProducts;
+            this.totalStores = totalStores;
+            this.activeStores = activeStores;
+            this.storesWithParking = storesWithParking;
+            this.storesWithDriveThrough = storesWithDriveThrough;
+            this.totalGameQuestions = totalGameQuestions;
+            this.totalGamesPlayed = totalGamesPlayed;
+            this.pendingProductReviewCount = pendingProductReviewCount;
+            this.pendingStoreReviewCount = pendingStoreReviewCount;
+            this.recentGames = List.copyOf(recentGames);
+            this.pendingProductReviews = List.copyOf(pendingProductReviews);
+            this.pendingStoreReviews = List.copyOf(pendingStoreReviews);
+            this.takenAt = takenAt;
+        }
+
+        public long getTotalUsers() {
+            return totalUsers;
+        }
+
+        public long getTotalCustomers() {
+            return totalCustomers;
+        }
+
+        public long getTotalProducts() {
+            return totalProducts;
+        }
+
+        public long getTotalStores() {
+            return totalStores;
+        }
+
+        public long getActiveStores() {
+            return activeStores;
+        }
+
+        public long getStoresWithParking() {
+            return storesWithParking;
+        }
+
+        public long getStoresWithDriveThrough() {
+            return storesWithDriveThrough;
+        }
+
+        public long getTotalGameQuestions() {
+            return totalGameQuestions;
+        }
+
+        public long getTotalGamesPlayed() {
+            return totalGamesPlayed;
+        }
+
+        public long getPendingProductReviewCount() {
+            return pendingProductReviewCount;
+        }
+
+        public long getPendingStoreReviewCount() {
+            return pendingStoreReviewCount;
+        }
+
+        public List<RecentGame> getRecentGames() {
+            return recentGames;
+        }
+
+        public List<PendingReview> getPendingProductReviews() {
+            return pendingProductReviews;
+        }
+
+        public List<PendingReview> getPendingStoreReviews() {
+            return pendingStoreReviews;
+        }
+
+        public LocalDateTime getTakenAt() {
+            return takenAt;
+        }
+    }
+
+    public static class RecentGame {
+
+        private final String username;
+        private final Integer currentScore;
+        private final LocalDateTime sessionEnd;
+
+        RecentGame(String username, Integer currentScore, LocalDateTime sessionEnd) {
+            this.username = username;
+            this.currentScore = currentScore;
+            this.sessionEnd = sessionEnd;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public Integer getCurrentScore() {
+            return currentScore;
+        }
+
+        public LocalDateTime getSessionEnd() {
+            return sessionEnd;
+        }
+    }
+
+    public static class PendingReview {
+
+        private final String subjectName;
+        private final Integer rating;
+        private final String username;
+
+        PendingReview(String subjectName, Integer rating, String username) {
+            this.subjectName = subjectName;
+            this.rating = rating;
+            this.username = username;
+        }
+
+        public String getSubjectName() {
+            return subjectName;
+        }
+
+        public Integer getRating() {
+            return rating;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getStarRating() {
+            StringBuilder stars = new StringBuilder();
+            for (int i = 1; i <= 5; i++) {
+                stars.append(rating != null && i <= rating ? "★" : "☆");
+            }
+            return stars.toString();
+        }
+    }
+}
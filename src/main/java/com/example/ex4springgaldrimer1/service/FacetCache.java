@@ -0,0 +1,224 @@
+package com.example.ex4springgaldrimer1.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache for the facet lists behind the catalog, store and admin filters, and for the facet
+ * counts of each filter combination. Facets are grouped under the entity they are read from, so a product
+ * write drops categories, brands and product counts together and a store write drops the store facets.
+ * Entries also expire after a configurable TTL, which covers rows changed outside the services.
+ */
+@Component
+public class FacetCache {
+
+    public enum Scope {
+        PRODUCT, STORE
+    }
+
+    public enum Facet {
+        CATEGORIES(Scope.PRODUCT),
+        BRANDS(Scope.PRODUCT),
+        PRODUCT_COUNTS(Scope.PRODUCT),
+        CITIES(Scope.STORE),
+        STATES(Scope.STORE),
+        STORE_COUNTS(Scope.STORE);
+
+        private final Scope scope;
+
+        Facet(Scope scope) {
+            this.scope = scope;
+        }
+
+        public Scope getScope() {
+            return scope;
+        }
+    }
+
+    @Value("${app.facet-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${app.facet-cache.max-count-entries:500}")
+    private int maxCountEntries;
+
+    private final Map<Facet, Entry> entries = new ConcurrentHashMap<>();
+
+    // Counts per (facet, filter key), least recently used evicted first; guarded by itself
+    private final LinkedHashMap<CountKey, CountEntry> counts = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CountKey, CountEntry> eldest) {
+            return size() > maxCountEntries;
+        }
+    };
+
+    // Bumped on every write to a scope; an entry loaded under an older generation is stale
+    private final Map<Scope, AtomicLong> generations = new EnumMap<>(Scope.class);
+
+    private final Map<Facet, FacetStats> stats = new EnumMap<>(Facet.class);
+
+    private record Entry(List<String> values, long generation, long expiresAt) {
+    }
+
+    private record CountKey(Facet facet, Object filters) {
+    }
+
+    private record CountEntry(Object counts, long generation, long expiresAt) {
+    }
+
+    public FacetCache() {
+        for (Scope scope : Scope.values()) {
+            generations.put(scope, new AtomicLong());
+        }
+        for (Facet facet : Facet.values()) {
+            stats.put(facet, new FacetStats(facet.name()));
+        }
+    }
+
+    // Lookup
+
+    /**
+     * Return the cached values, or load them and cache the result.
+     * A result loaded while a write to the same scope was going on is returned but not cached.
+     */
+    public List<String> get(Facet facet, Supplier<List<String>> loader) {
+        AtomicLong generation = generations.get(facet.getScope());
+        FacetStats facetStats = stats.get(facet);
+        long currentGeneration = generation.get();
+
+        Entry entry = entries.get(facet);
+        if (entry != null && entry.generation() == currentGeneration && System.nanoTime() - entry.expiresAt() < 0) {
+            facetStats.hits.incrementAndGet();
+            return entry.values();
+        }
+
+        facetStats.misses.incrementAndGet();
+        List<String> values = Collections.unmodifiableList(new ArrayList<>(loader.get()));
+        if (generation.get() == currentGeneration) {
+            entries.put(facet, new Entry(values, currentGeneration, System.nanoTime() + ttlSeconds * 1_000_000_000L));
+        }
+        return values;
+    }
+
+    /**
+     * Return the cached counts for one filter combination, or load and cache them, with the same rules as get.
+     * The filters must be an immutable value with equals, such as a record; the counts are shared between
+     * callers and must not be changed.
+     */
+    public <T> T getCounts(Facet facet, Object filters, Supplier<T> loader) {
+        AtomicLong generation = generations.get(facet.getScope());
+        FacetStats facetStats = stats.get(facet);
+        long currentGeneration = generation.get();
+        CountKey key = new CountKey(facet, filters);
+
+        CountEntry entry;
+        synchronized (counts) {
+            entry = counts.get(key);
+        }
+        if (entry != null && entry.generation() == currentGeneration && System.nanoTime() - entry.expiresAt() < 0) {
+            facetStats.hits.incrementAndGet();
+            @SuppressWarnings("unchecked")
+            T cached = (T) entry.counts();
+            return cached;
+        }
+
+        facetStats.misses.incrementAndGet();
+        T loaded = loader.get();
+        if (generation.get() == currentGeneration) {
+            synchronized (counts) {
+                counts.put(key, new CountEntry(loaded, currentGeneration, System.nanoTime() + ttlSeconds * 1_000_000_000L));
+            }
+        }
+        return loaded;
+    }
+
+    // Invalidation
+
+    /**
+     * Drop every facet of the scope. Inside a transaction the facets are dropped again after commit,
+     * so a reader that reloaded before the commit cannot keep the old values.
+     */
+    public void invalidate(Scope scope) {
+        bumpGeneration(scope);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bumpGeneration(scope);
+                }
+            });
+        }
+    }
+
+    private void bumpGeneration(Scope scope) {
+        generations.get(scope).incrementAndGet();
+        for (Facet facet : Facet.values()) {
+            if (facet.getScope() == scope && entries.remove(facet) != null) {
+                stats.get(facet).invalidations.incrementAndGet();
+            }
+        }
+        synchronized (counts) {
+            counts.entrySet().removeIf(entry -> {
+                boolean inScope = entry.getKey().facet().getScope() == scope;
+                if (inScope) {
+                    stats.get(entry.getKey().facet()).invalidations.incrementAndGet();
+                }
+                return inScope;
+            });
+        }
+    }
+
+    // Metrics
+    public List<FacetStats> getStats() {
+        return List.copyOf(stats.values());
+    }
+
+    /**
+     * Hit, miss and invalidation counters for one facet since startup.
+     */
+    public static class FacetStats {
+
+        private final String facet;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong invalidations = new AtomicLong();
+
+        FacetStats(String facet) {
+            this.facet = facet;
+        }
+
+        public String getFacet() {
+            return facet;
+        }
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+        public long getInvalidations() {
+            return invalidations.get();
+        }
+
+        public double getHitRatio() {
+            long hitCount = hits.get();
+            long total = hitCount + misses.get();
+            return total == 0 ? 0.0 : (double) hitCount / total;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.ex4springgaldrimer1.service;
+
+import com.example.ex4springgaldrimer1.repository.StoreRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-value counts for the catalog and store filters, computed from one grouped query per listing and kept
+ * in FacetCache per filter combination until the next product or store write.
+ * The query groups by every facet column, so each facet can be counted against all the other selected
+ * filters but not its own: picking a category still shows how many products the other categories hold.
+ */
+@Service
+@Transactional
+public class FacetService {
+
+    /**
+     * Price ranges shown in the catalog, in ascending order. A price falls in the last range whose minPrice
+     * it reaches; the facet query's CASE is generated from these bounds.
+     */
+    public enum PriceRange {
+        UNDER_25("Under $25", null, new BigDecimal("24.99")),
+        FROM_25_TO_50("$25 - $50", new BigDecimal("25"), new BigDecimal("49.99")),
+        FROM_50_TO_100("$50 - $100", new BigDecimal("50"), new BigDecimal("99.99")),
+        FROM_100_TO_250("$100 - $250", new BigDecimal("100"), new BigDecimal("249.99")),
+        FROM_250_TO_500("$250 - $500", new BigDecimal("250"), new BigDecimal("499.99")),
+        OVER_500("$500 and up", new BigDecimal("500"), null);
+
+        private final String label;
+        private final BigDecimal minPrice;
+        private final BigDecimal maxPrice;
+
+        PriceRange(String label, BigDecimal minPrice, BigDecimal maxPrice) {
+            this.label = label;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public BigDecimal getMinPrice() {
+            return minPrice;
+        }
+
+        public BigDecimal getMaxPrice() {
+            return maxPrice;
+        }
+    }
+
+    // Numbers each product by its PriceRange ordinal. The bounds are written in as literals, so the SELECT
+    // and GROUP BY carry the same expression text, which MySQL's ONLY_FULL_GROUP_BY requires
+    private static final String PRICE_RANGE_CASE = priceRangeCase("p.price");
+
+    // One row per (category, brand, price range, stock) combination matching search and price;
+    // search matches the same columns as ProductRepository.searchWithFilters
+    private static final String PRODUCT_FACET_QUERY = "SELECT p.category, p.brand, " + PRICE_RANGE_CASE + ", " +
+            "p.inStock, COUNT(p) FROM Product p WHERE " +
+            "(:search IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(p.brand) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.price <= :maxPrice) " +
+            "GROUP BY p.category, p.brand, " + PRICE_RANGE_CASE + ", p.inStock";
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private FacetCache facetCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Cache keys: every argument that changes the counts
+    private record ProductFacetKey(String search, String category, String brand,
+                                   BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock) {
+    }
+
+    private record StoreFacetKey(String search, String city, String state, String zipCode,
+                                 Boolean isActive, Boolean parkingAvailable, Boolean driveThrough) {
+    }
+
+    static String priceRangeCase(String price) {
+        PriceRange[] ranges = PriceRange.values();
+        StringBuilder sql = new StringBuilder("CASE");
+        for (int i = 0; i < ranges.length - 1; i++) {
+            sql.append(" WHEN ").append(price).append(" < ").append(ranges[i + 1].getMinPrice().toPlainString())
+                    .append(" THEN ").append(i);
+        }
+        return sql.append(" ELSE ").append(ranges.length - 1).append(" END").toString();
+    }
+
+    // Product facets
+
+    /**
+     * Counts for the catalog filters. Search and the price bounds narrow every facet;
+     * category, brand and stock narrow every facet except their own.
+     */
+    public ProductFacets getProductFacets(String search, String category, String brand,
+                                          BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock) {
+        String searchTerm = search != null ? search.trim() : null;
+        return facetCache.getCounts(FacetCache.Facet.PRODUCT_COUNTS,
+                new ProductFacetKey(searchTerm, category, brand, minPrice, maxPrice, inStock),
+                () -> countProductFacets(searchTerm, category, brand, minPrice, maxPrice, inStock));
+    }
+
+    private ProductFacets countProductFacets(String searchTerm, String category, String brand,
+                                             BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock) {
+        List<Object[]> rows = entityManager.createQuery(PRODUCT_FACET_QUERY, Object[].class)
+                .setParameter("search", searchTerm)
+                .setParameter("minPrice", minPrice)
+                .setParameter("maxPrice", maxPrice)
+                .getResultList();
+
+        ProductFacets facets = new ProductFacets();
+        for (Object[] row : rows) {
+            String rowCategory = (String) row[0];
+            String rowBrand = (String) row[1];
+            PriceRange range = PriceRange.values()[((Number) row[2]).intValue()];
+            Boolean rowInStock = (Boolean) row[3];
+            long count = ((Number) row[4]).longValue();
+
+            // Same matching rules as the catalog query: exact category, brand contains, stock flag
+            boolean categoryMatches = category == null || category.equalsIgnoreCase(rowCategory);
+            boolean brandMatches = brand == null || (rowBrand != null && lower(rowBrand).contains(lower(brand)));
+            boolean stockMatches = inStock == null || inStock.equals(rowInStock);
+
+            if (brandMatches && stockMatches && rowCategory != null) {
+                facets.categories.merge(rowCategory, count, Long::sum);
+            }
+            if (categoryMatches && stockMatches && rowBrand != null) {
+                facets.brands.merge(rowBrand, count, Long::sum);
+            }
+            if (categoryMatches && brandMatches && stockMatches) {
+                facets.priceRanges.merge(range, count, Long::sum);
+            }
+            if (categoryMatches && brandMatches && rowInStock != null) {
+                facets.inStock.merge(rowInStock, count, Long::sum);
+            }
+        }
+        return facets;
+    }
+
+    // Store facets
+
+    /**
+     * Counts for the store filters. Search, ZIP code and status narrow every facet;
+     * city, state, parking and drive-through narrow every facet except their own.
+     */
+    public StoreFacets getStoreFacets(String search, String city, String state, String zipCode,
+                                      Boolean isActive, Boolean parkingAvailable, Boolean driveThrough) {
+        String searchTerm = search != null ? search.trim() : null;
+        return facetCache.getCounts(FacetCache.Facet.STORE_COUNTS,
+                new StoreFacetKey(searchTerm, city, state, zipCode, isActive, parkingAvailable, driveThrough),
+                () -> countStoreFacets(searchTerm, city, state, zipCode, isActive, parkingAvailable, driveThrough));
+    }
+
+    private StoreFacets countStoreFacets(String searchTerm, String city, String state, String zipCode,
+                                         Boolean isActive, Boolean parkingAvailable, Boolean driveThrough) {
+        StoreFacets facets = new StoreFacets();
+
+        for (Object[] row : storeRepository.countFacetCombinations(searchTerm, zipCode, isActive)) {
+            String rowCity = (String) row[0];
+            String rowState = (String) row[1];
+            Boolean rowParking = (Boolean) row[2];
+            Boolean rowDriveThrough = (Boolean) row[3];
+            long count = ((Number) row[4]).longValue();
+
+            boolean cityMatches = city == null || city.equalsIgnoreCase(rowCity);
+            boolean stateMatches = state == null || state.equalsIgnoreCase(rowState);
+            boolean parkingMatches = parkingAvailable == null || parkingAvailable.equals(rowParking);
+            boolean driveThroughMatches = driveThrough == null || driveThrough.equals(rowDriveThrough);
+
+            if (stateMatches && parkingMatches && driveThroughMatches && rowCity != null) {
+                facets.cities.merge(rowCity, count, Long::sum);
+            }
+            if (cityMatches && parkingMatches && driveThroughMatches && rowState != null) {
+                facets.states.merge(rowState, count, Long::sum);
+            }
+            if (cityMatches && stateMatches && driveThroughMatches && rowParking != null) {
+                facets.parking.merge(rowParking, count, Long::sum);
+            }
+            if (cityMatches && stateMatches && parkingMatches && rowDriveThrough != null) {
+                facets.driveThrough.merge(rowDriveThrough, count, Long::sum);
+            }
+        }
+        return facets;
+    }
+
+    private static String lower(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    // Results
+
+    /**
+     * Catalog facet counts. Text facets ignore case, like the filters themselves.
+     * Shared through FacetCache, so the maps are read-only.
+     */
+    public static class ProductFacets {
+
+        private final Map<String, Long> categories = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final Map<String, Long> brands = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final Map<PriceRange, Long> priceRanges = new EnumMap<>(PriceRange.class);
+        private final Map<Boolean, Long> inStock = new TreeMap<>();
+
+        public Map<String, Long> getCategories() {
+            return Collections.unmodifiableMap(categories);
+        }
+
+        public Map<String, Long> getBrands() {
+            return Collections.unmodifiableMap(brands);
+        }
+
+        public Map<PriceRange, Long> getPriceRanges() {
+            return Collections.unmodifiableMap(priceRanges);
+        }
+
+        public Map<Boolean, Long> getInStock() {
+            return Collections.unmodifiableMap(inStock);
+        }
+    }
+
+    /**
+     * Store facet counts. Text facets ignore case, like the filters themselves.
+     * Shared through FacetCache, so the maps are read-only.
+     */
+    public static class StoreFacets {
+
+        private final Map<String, Long> cities = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final Map<String, Long> states = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final Map<Boolean, Long> parking = new TreeMap<>();
+        private final Map<Boolean, Long> driveThrough = new TreeMap<>();
+
+        public Map<String, Long> getCities() {
+            return Collections.unmodifiableMap(cities);
+        }
+
+        public Map<String, Long> getStates() {
+            return Collections.unmodifiableMap(states);
+        }
+
+        public Map<Boolean, Long> getParking() {
+            return Collections.unmodifiableMap(parking);
+        }
+
+        public Map<Boolean, Long> getDriveThrough() {
+            return Collections.unmodifiableMap(driveThrough);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.ex4springgaldrimer1.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Rendered HTML of template fragments, filled by the cache:fragment attribute (FragmentCacheDialect).
+ * Keys are "scope:name", e.g. "product:42" or "store:cities". A name that is an entity id, optionally followed
+ * by ":something", belongs to that entity; any other name is shared by the whole scope. A write to an entity
+ * drops its own fragments and the shared ones of its scope, since a changed category or city changes the
+ * navigation too. Holds at most maxEntries fragments, least recently used evicted first, and entries expire
+ * after a TTL, which covers rows changed outside the services.
+ */
+@Component
+public class FragmentCache {
+
+    /**
+     * Request attribute holding the generations seen when the request started, before its data was loaded.
+     */
+    public static final String SNAPSHOT_ATTRIBUTE = FragmentCache.class.getName() + ".SNAPSHOT";
+
+    public enum Scope {
+        PRODUCT, STORE
+    }
+
+    @Value("${app.fragment-cache.max-entries:5000}")
+    private int maxEntries;
+
+    @Value("${app.fragment-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    // Guarded by this; access-ordered for LRU eviction
+    private LinkedHashMap<String, Entry> entries;
+
+    // Bumped on every write to a scope; a fragment rendered from data read under an older generation is not stored
+    private final Map<Scope, AtomicLong> generations = new EnumMap<>(Scope.class);
+
+    private final Map<Scope, FragmentStats> stats = new EnumMap<>(Scope.class);
+
+    private record Entry(Scope scope, String html, long expiresAt) {
+    }
+
+    public FragmentCache() {
+        for (Scope scope : Scope.values()) {
+            generations.put(scope, new AtomicLong());
+            stats.put(scope, new FragmentStats(scope.name()));
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    // Lookup
+
+    /**
+     * False when max-entries is 0; fragments are then rendered as if the attribute were not there.
+     */
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * The cached HTML for the key, or null if it has to be rendered.
+     */
+    public String get(String key) {
+        Scope scope = scopeOf(key);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.expiresAt() < 0) {
+                stats.get(scope).hits.incrementAndGet();
+                return entry.html();
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        stats.get(scope).misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Store rendered HTML, unless its scope was written to since the snapshot the data was read under.
+     */
+    public void put(String key, String html, Map<Scope, Long> snapshot) {
+        Scope scope = scopeOf(key);
+        if (!isEnabled() || generations.get(scope).get() != snapshot.get(scope)) {
+            return;
+        }
+        synchronized (this) {
+            entries.put(key, new Entry(scope, html, System.nanoTime() + ttlSeconds * 1_000_000_000L));
+        }
+    }
+
+    /**
+     * Current generation of every scope, to be taken before the data of a page is loaded.
+     */
+    public Map<Scope, Long> snapshot() {
+        Map<Scope, Long> snapshot = new EnumMap<>(Scope.class);
+        generations.forEach((scope, generation) -> snapshot.put(scope, generation.get()));
+        return snapshot;
+    }
+
+    /**
+     * Scope named before the first ':' of a key.
+     */
+    public static Scope scopeOf(String key) {
+        int colon = key.indexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Fragment cache key must look like 'scope:name': " + key);
+        }
+        return Scope.valueOf(key.substring(0, colon).toUpperCase(Locale.ROOT));
+    }
+
+    // Invalidation
+
+    /**
+     * Drop the fragments of one entity and the shared fragments of its scope. Inside a transaction they are
+     * dropped again after commit, so a page that rendered before the commit cannot keep the old HTML.
+     */
+    public void invalidate(Scope scope, Long id) {
+        String entityPrefix = scope.name().toLowerCase(Locale.ROOT) + ":" + id;
+        invalidate(scope, key -> isShared(key) || belongsTo(key, entityPrefix));
+    }
+
+    /**
+     * Drop only the shared fragments of the scope, for new entities that have no fragments of their own yet.
+     */
+    public void invalidateShared(Scope scope) {
+        invalidate(scope, FragmentCache::isShared);
+    }
+
+    /**
+     * Drop every fragment of the scope, for writes that touch many entities at once.
+     */
+    public void invalidateAll(Scope scope) {
+        invalidate(scope, key -> true);
+    }
+
+    private void invalidate(Scope scope, Predicate<String> keys) {
+        drop(scope, keys);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    drop(scope, keys);
+                }
+            });
+        }
+    }
+
+    private void drop(Scope scope, Predicate<String> keys) {
+        generations.get(scope).incrementAndGet();
+        int dropped = 0;
+        synchronized (this) {
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Entry> entry = iterator.next();
+                if (entry.getValue().scope() == scope && keys.test(entry.getKey())) {
+                    iterator.remove();
+                    dropped++;
+                }
+            }
+        }
+        stats.get(scope).invalidations.addAndGet(dropped);
+    }
+
+    // A name that does not start with an entity id
+    private static boolean isShared(String key) {
+        int start = key.indexOf(':') + 1;
+        return start >= key.length() || !Character.isDigit(key.charAt(start));
+    }
+
+    private static boolean belongsTo(String key, String entityPrefix) {
+        return key.regionMatches(true, 0, entityPrefix, 0, entityPrefix.length())
+                && (key.length() == entityPrefix.length() || key.charAt(entityPrefix.length()) == ':');
+    }
+
+    // Metrics
+    public List<FragmentStats> getStats() {
+        return List.copyOf(stats.values());
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Hit, miss and invalidation counters for one scope since startup.
+     */
+    public static class FragmentStats {
+
+        private final String scope;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong invalidations = new AtomicLong();
+
+        FragmentStats(String scope) {
+            this.scope = scope;
+        }
+
+        public String getScope() {
+            return scope;
+        }
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+        public long getInvalidations() {
+            return invalidations.get();
+        }
+
+        public double getHitRatio() {
+            long hitCount = hits.get();
+            long total = hitCount + misses.get();
+            return total == 0 ? 0.0 : (double) hitCount / total;
+        }
+    }
+}
@@ -3,26 +3,42 @@ package com.example.ex4springgaldrimer1.service;
 import com.example.ex4springgaldrimer1.entity.GameQuestion;
 import com.example.ex4springgaldrimer1.entity.GameSession;
 import com.example.ex4springgaldrimer1.entity.User;
+import com.example.ex4springgaldrimer1.entity.UserGameStats;
 import com.example.ex4springgaldrimer1.enums.QuestionType;
+import com.example.ex4springgaldrimer1.projection.RecentGameView;
 import com.example.ex4springgaldrimer1.repository.GameQuestionRepository;
 import com.example.ex4springgaldrimer1.repository.GameSessionRepository;
+import com.example.ex4springgaldrimer1.repository.UserGameStatsRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class GameService {
 
+    private static final Logger log = LoggerFactory.getLogger(GameService.class);
+
     @Autowired
     private GameQuestionRepository gameQuestionRepository;
 
@@ -32,6 +48,55 @@ public class GameService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private QuestionPool questionPool;
+
+    @Autowired
+    private Leaderboard leaderboard;
+
+    @Autowired
+    private UserGameStatsRepository userGameStatsRepository;
+
+    @Autowired
+    private DashboardStatistics dashboardStatistics;
+
+    @Autowired
+    private ActiveGameStore activeGameStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Outcome of an answer, so the caller needs no further lookups to report it.
+     */
+    public static class AnswerResult {
+
+        private final boolean correct;
+        private final String correctAnswer;
+        private final boolean gameOver;
+
+        AnswerResult(boolean correct, String correctAnswer, boolean gameOver) {
+            this.correct = correct;
+            this.correctAnswer = correctAnswer;
+            this.gameOver = gameOver;
+        }
+
+        public boolean isCorrect() {
+            return correct;
+        }
+
+        public String getCorrectAnswer() {
+            return correctAnswer;
+        }
+
+        public boolean isGameOver() {
+            return gameOver;
+        }
+    }
+
     // Game Session Management
     public GameSession startNewGame(User user) {
         return startNewGame(user, 10); // Default 10 questions
@@ -46,83 +111,140 @@ public class GameService {
 
         // Create new session
         GameSession session = new GameSession(user, totalQuestions);
-        return gameSessionRepository.save(session);
+        GameSession saved = gameSessionRepository.save(session);
+        activeGameStore.load(saved);
+        dashboardStatistics.markStale();
+        return saved;
     }
 
     public Optional<GameSession> getCurrentSession(User user) {
         return gameSessionRepository.findByUserAndIsCompleted(user, false);
     }
 
+    /**
+     * The session with its user loaded, so callers outside a transaction can read the player.
+     */
     public GameSession getSessionById(Long sessionId) {
-        return gameSessionRepository.findById(sessionId)
+        return gameSessionRepository.findByIdWithUser(sessionId)
                 .orElseThrow(() -> new RuntimeException("Game session not found with id: " + sessionId));
     }
 
+    /**
+     * The in-memory state of a game in progress, loaded on first use; null if the session is completed or unknown.
+     */
+    public ActiveGame getActiveGame(Long sessionId) {
+        ActiveGame game = activeGameStore.get(sessionId);
+        if (game != null) {
+            return game;
+        }
+        return gameSessionRepository.findById(sessionId)
+                .filter(session -> !session.getIsCompleted())
+                .map(activeGameStore::load)
+                .orElse(null);
+    }
+
     // Question Management
-    public GameQuestion getNextQuestion(GameSession session) {
-        List<Long> askedQuestionIds = getAskedQuestionIds(session);
 
-        List<GameQuestion> availableQuestions;
-        if (askedQuestionIds.isEmpty()) {
-            availableQuestions = gameQuestionRepository.findRandomActiveQuestions(1);
-        } else {
-            availableQuestions = gameQuestionRepository.findRandomActiveQuestionsExcluding(askedQuestionIds, 1);
+    /**
+     * The question to show next. Game state changes in memory only and is written behind;
+     * a question handed out but not answered yet is shown again.
+     */
+    public GameQuestion getNextQuestion(ActiveGame game) {
+        Long pendingQuestionId = game.getPendingQuestionId();
+        if (pendingQuestionId != null) {
+            Optional<GameQuestion> pending = gameQuestionRepository.findById(pendingQuestionId);
+            if (pending.isPresent()) {
+                return pending.get();
+            }
         }
 
-        if (availableQuestions.isEmpty()) {
+        // Pick from the in-memory pool; a stale id (deleted or deactivated meanwhile) is dropped and retried
+        GameQuestion question = null;
+        Long questionId;
+        while (question == null && (questionId = questionPool.pickRandom(game::hasAsked)) != null) {
+            question = gameQuestionRepository.findById(questionId)
+                    .filter(GameQuestion::getIsActive)
+                    .orElse(null);
+            if (question == null) {
+                questionPool.remove(questionId);
+            }
+        }
+
+        if (question == null) {
             // No more questions available, end the game
-            endGame(session);
+            endGame(game);
             return null;
         }
 
-        GameQuestion question = availableQuestions.get(0);
-
         // Track that this question has been asked
-        session.addAskedQuestion(question.getId());
-        gameSessionRepository.save(session);
+        game.askQuestion(question);
+        activeGameStore.changed(game);
 
         return question;
     }
 
+    public GameQuestion getNextQuestion(GameSession session) {
+        ActiveGame game = getActiveGame(session.getId());
+        return game != null ? getNextQuestion(game) : null;
+    }
+
     public GameQuestion getQuestionById(Long questionId) {
         return gameQuestionRepository.findById(questionId)
                 .orElseThrow(() -> new RuntimeException("Question not found with id: " + questionId));
     }
 
-    private List<Long> getAskedQuestionIds(GameSession session) {
-        if (session.getAskedQuestionIds() == null || session.getAskedQuestionIds().isEmpty()) {
-            return List.of();
-        }
-
-        return Arrays.stream(session.getAskedQuestionIds().split(","))
-                .map(String::trim)
-                .map(Long::parseLong)
-                .collect(Collectors.toList());
-    }
-
     // Answer Processing
-    public boolean submitAnswer(GameSession session, Long questionId, String answer) {
-        GameQuestion question = getQuestionById(questionId);
-        boolean isCorrect = question.getCorrectAnswer().equalsIgnoreCase(answer.trim());
 
-        if (isCorrect) {
-            session.addCorrectAnswer(question.getPoints());
+    /**
+     * Record an answer in memory; the database is written behind, or when this answer ends the game.
+     * The pending question's answer is already known, so only an unexpected question id costs a lookup.
+     */
+    public AnswerResult submitAnswer(ActiveGame game, Long questionId, String answer) {
+        String correctAnswer = game.answerPending(questionId, answer);
+        boolean isCorrect;
+
+        if (correctAnswer != null) {
+            isCorrect = correctAnswer.equalsIgnoreCase(answer.trim());
         } else {
-            session.addIncorrectAnswer();
+            GameQuestion question = getQuestionById(questionId);
+            correctAnswer = question.getCorrectAnswer();
+            isCorrect = correctAnswer.equalsIgnoreCase(answer.trim());
+            game.recordAnswer(isCorrect, question.getPoints());
         }
-
-        gameSessionRepository.save(session);
+        activeGameStore.changed(game);
 
         // Check if game is complete
-        if (session.isGameOver()) {
-            endGame(session);
+        boolean gameOver = game.isGameOver();
+        if (gameOver) {
+            endGame(game);
         }
 
-        return isCorrect;
+        return new AnswerResult(isCorrect, correctAnswer, gameOver);
     }
 
+    public boolean submitAnswer(GameSession session, Long questionId, String answer) {
+        ActiveGame game = getActiveGame(session.getId());
+        if (game == null) {
+            throw new RuntimeException("Game session is already completed: " + session.getId());
+        }
+        return submitAnswer(game, questionId, answer).isCorrect();
+    }
+
+    public GameSession endGame(ActiveGame game) {
+        return endGame(game.getId());
+    }
+
+    /**
+     * Same as endGame(Long); the session is loaded again in this transaction, so a detached one can be passed.
+     */
     public GameSession endGame(GameSession session) {
+        return endGame(session.getId());
+    }
+
+    public GameSession endGame(Long sessionId) {
+        GameSession session = getSessionById(sessionId);
         if (!session.getIsCompleted()) {
+            mergeActiveGame(session);
             session.completeGame();
             gameSessionRepository.save(session);
 
@@ -131,22 +253,153 @@ public class GameService {
             user.updateHighestScore(session.getCurrentScore());
             user.addCustomerPoints(session.getCustomerPointsAwarded());
             userService.updateUser(user);
+
+            onGameCompleted(session);
         }
 
         return session;
     }
 
+    /**
+     * Copy the in-memory progress onto the session before it is completed, so answers not written
+     * behind yet are saved with the completed row. The game stops taking answers at once but stays in
+     * the store until the ending transaction commits; on rollback it is reopened with nothing lost.
+     */
+    private void mergeActiveGame(GameSession session) {
+        ActiveGame game = activeGameStore.get(session.getId());
+        if (game == null) {
+            return;
+        }
+        game.endInto(session);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            activeGameStore.remove(game.getId());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    activeGameStore.remove(game.getId());
+                } else {
+                    game.reopen();
+                    activeGameStore.changed(game);
+                }
+            }
+        });
+    }
+
+    /**
+     * Everything that follows a session becoming completed, whichever way it ended.
+     */
+    private void onGameCompleted(GameSession session) {
+        leaderboard.record(session);
+        recordUserGameStats(session);
+        dashboardStatistics.markStale();
+    }
+
+    // Per-user statistics rollup
+
+    /**
+     * Add a completed session to the user's stats row, under a row lock.
+     * A user without a row yet gets an empty one first, committed on its own (see createUserGameStats),
+     * and an empty row is built from their history, which already includes this session.
+     */
+    private void recordUserGameStats(GameSession session) {
+        Long userId = session.getUser().getId();
+        if (!userGameStatsRepository.existsById(userId)) {
+            createUserGameStats(userId);
+        }
+        UserGameStats stats = userGameStatsRepository.findByUserIdForUpdate(userId)
+                .orElseThrow(() -> new RuntimeException("Game stats not found for user id: " + userId));
+
+        // Also covers a row left empty by a first game that rolled back
+        if (stats.getGamesPlayed() == 0) {
+            rebuildUserGameStats(stats);
+        } else {
+            stats.addCompletedGame(session.getId(), session.getCurrentScore() != null ? session.getCurrentScore() : 0);
+        }
+        userGameStatsRepository.save(stats);
+    }
+
+    /**
+     * Insert an empty stats row in its own transaction. When two first games end at once the second insert
+     * hits the primary key; that only means the row is there, and the failure stays out of the game's transaction.
+     */
+    private void createUserGameStats(Long userId) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            // persist rather than save: save merges an assigned id and would overwrite a row created meanwhile.
+            // The insert runs at commit, where a key violation is translated to DataIntegrityViolationException
+            transaction.executeWithoutResult(status -> entityManager.persist(new UserGameStats(userId)));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Game stats row for user {} was created concurrently", userId);
+        }
+    }
+
+    private UserGameStats rebuildUserGameStats(UserGameStats stats) {
+        Long userId = stats.getUserId();
+        Object[] totals = gameSessionRepository.findScoreTotalsByUserId(userId).get(0);
+
+        stats.setGamesPlayed(((Number) totals[0]).intValue());
+        stats.setScoreSum(((Number) totals[1]).longValue());
+        stats.setBestScore(totals[2] != null ? ((Number) totals[2]).intValue() : null);
+        stats.setRecentSessionIds(gameSessionRepository.findCompletedSessionIdsByUserId(userId,
+                PageRequest.of(0, UserGameStats.RECENT_GAMES)));
+        return stats;
+    }
+
+    /**
+     * Create stats rows for users who completed games before the rollup existed, and refill recent
+     * sessions for rows from before they were stored packed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillUserGameStats() {
+        for (Long userId : gameSessionRepository.findUserIdsWithoutGameStats()) {
+            userGameStatsRepository.save(rebuildUserGameStats(new UserGameStats(userId)));
+        }
+        for (Long userId : userGameStatsRepository.findUserIdsWithoutRecentSessions()) {
+            userGameStatsRepository.findById(userId)
+                    .ifPresent(stats -> userGameStatsRepository.save(rebuildUserGameStats(stats)));
+        }
+    }
+
+    public UserGameStats getUserGameStats(User user) {
+        return userGameStatsRepository.findById(user.getId()).orElseGet(() -> new UserGameStats(user.getId()));
+    }
+
+    /**
+     * The sessions listed in the stats row, most recent first, loaded in one query.
+     */
+    public List<GameSession> getRecentGames(UserGameStats stats) {
+        List<Long> sessionIds = stats.getRecentSessionIds();
+        if (sessionIds.isEmpty()) {
+            return List.of();
+        }
+        return gameSessionRepository.findAllById(sessionIds).stream()
+                .sorted(Comparator.comparingInt(session -> sessionIds.indexOf(session.getId())))
+                .toList();
+    }
+
     // Logout Game Handling - NEW METHODS
 
     /**
      * End active game session on user logout with zero points
      */
     public void endActiveGameOnLogout(User user) {
+        endActiveGameOnLogout(user.getId(), user.getUsername());
+    }
+
+    /**
+     * Same as endActiveGameOnLogout(User), for callers that only hold the id from the security principal.
+     */
+    public void endActiveGameOnLogout(Long userId, String username) {
         try {
-            Optional<GameSession> activeSession = gameSessionRepository.findByUserAndIsCompleted(user, false);
+            Optional<GameSession> activeSession = gameSessionRepository.findByUserIdAndIsCompleted(userId, false);
 
             if (activeSession.isPresent()) {
                 GameSession session = activeSession.get();
+                mergeActiveGame(session);
 
                 // Set game as completed with current progress but zero points
                 session.setIsCompleted(true);
@@ -155,13 +408,13 @@ public class GameService {
 
                 // Save the session
                 gameSessionRepository.save(session);
+                onGameCompleted(session);
 
-                System.out.println("Ended active game session for user: " + user.getUsername() +
-                        " (Session ID: " + session.getId() + ") - Zero points awarded due to logout");
+                log.info("Ended active game session {} for user {} on logout, zero points awarded", session.getId(), username);
             }
         } catch (Exception e) {
             // Log error but don't throw - we don't want to prevent logout
-            System.err.println("Error ending active game session on logout for user " + user.getUsername() + ": " + e.getMessage());
+            log.error("Error ending active game session on logout for user {}", username, e);
         }
     }
 
@@ -174,6 +427,7 @@ public class GameService {
 
             if (activeSession.isPresent()) {
                 GameSession session = activeSession.get();
+                mergeActiveGame(session);
 
                 // Calculate partial points (e.g., 50% of current score)
                 int partialPoints = Math.max(1, session.getCurrentScore() / 2);
@@ -192,12 +446,12 @@ public class GameService {
                 // Save both session and user
                 gameSessionRepository.save(session);
                 userService.updateUser(user);
+                onGameCompleted(session);
 
-                System.out.println("Ended active game session for user: " + user.getUsername() +
-                        " with partial points: " + partialPoints);
+                log.info("Ended active game session for user {} with partial points: {}", user.getUsername(), partialPoints);
             }
         } catch (Exception e) {
-            System.err.println("Error ending active game session with partial points for user " + user.getUsername() + ": " + e.getMessage());
+            log.error("Error ending active game session with partial points for user {}", user.getUsername(), e);
         }
     }
 
@@ -210,7 +464,10 @@ public class GameService {
 
     // Question CRUD (for admin)
     public GameQuestion saveQuestion(GameQuestion question) {
-        return gameQuestionRepository.save(question);
+        GameQuestion saved = gameQuestionRepository.save(question);
+        questionPool.update(saved);
+        dashboardStatistics.markStale();
+        return saved;
     }
 
     public GameQuestion createQuestion(String questionText, String optionA, String optionB, String optionC, String optionD,
@@ -218,7 +475,7 @@ public class GameService {
         GameQuestion question = new GameQuestion(questionText, optionA, optionB, optionC, optionD, correctAnswer, questionType);
         question.setPoints(points);
         question.setDifficultyLevel(difficultyLevel);
-        return gameQuestionRepository.save(question);
+        return saveQuestion(question);
     }
 
     public List<GameQuestion> getAllQuestions() {
@@ -235,12 +492,14 @@ public class GameService {
 
     public void deleteQuestion(Long questionId) {
         gameQuestionRepository.deleteById(questionId);
+        questionPool.remove(questionId);
+        dashboardStatistics.markStale();
     }
 
     public void deactivateQuestion(Long questionId) {
         GameQuestion question = getQuestionById(questionId);
         question.setIsActive(false);
-        gameQuestionRepository.save(question);
+        saveQuestion(question);
     }
 
     // Statistics and Leaderboards
@@ -253,6 +512,23 @@ public class GameService {
         return gameSessionRepository.findTopScores(pageable);
     }
 
+    // Leaderboard reads come from memory, see Leaderboard
+    public List<Leaderboard.Entry> getLeaderboard(int limit) {
+        return leaderboard.getTop(limit);
+    }
+
+    public Long getLeaderboardRank(Long userId) {
+        return leaderboard.getRank(userId);
+    }
+
+    public List<Leaderboard.Entry> getLeaderboardNeighbours(Long userId, int radius) {
+        return leaderboard.getNeighbours(userId, radius);
+    }
+
+    public long getLeaderboardRank(Leaderboard.Entry entry) {
+        return leaderboard.getRank(entry);
+    }
+
     public Page<GameSession> getUserTopScores(User user, int limit) {
         Pageable pageable = PageRequest.of(0, limit);
         return gameSessionRepository.findTopScoresByUser(user, pageable);
@@ -263,6 +539,14 @@ public class GameService {
         return gameSessionRepository.findBySessionStartAfterOrderBySessionStartDesc(since);
     }
 
+    /**
+     * The latest limit sessions of the last days, newest first, with their players' usernames.
+     */
+    public List<RecentGameView> getRecentGames(int days, int limit) {
+        LocalDateTime since = LocalDateTime.now().minusDays(days);
+        return gameSessionRepository.findRecentGames(since, PageRequest.of(0, limit));
+    }
+
     // Game Statistics
     public long getTotalGamesPlayed() {
         return gameSessionRepository.count();
@@ -281,7 +565,7 @@ public class GameService {
     }
 
     public Integer getHighestScore() {
-        return gameSessionRepository.findHighestScore();
+        return leaderboard.getHighestScore();
     }
 
     public Integer getUserHighestScore(User user) {
@@ -294,15 +578,15 @@ public class GameService {
     }
 
     public long getActiveQuestionsCount() {
-        return gameQuestionRepository.countByIsActive(true);
+        return questionPool.size();
     }
 
     public long getQuestionCountByType(QuestionType questionType) {
-        return gameQuestionRepository.countByQuestionTypeAndIsActive(questionType, true);
+        return questionPool.size(questionType, null);
     }
 
     public long getQuestionCountByDifficulty(Integer difficultyLevel) {
-        return gameQuestionRepository.countByDifficultyLevelAndIsActive(difficultyLevel, true);
+        return questionPool.countByStoredDifficulty(difficultyLevel);
     }
 
     // Validation
@@ -332,11 +616,14 @@ public class GameService {
 
         for (GameSession session : oldSessions) {
             if (!session.getIsCompleted()) {
+                mergeActiveGame(session);
+
                 // End old incomplete games with zero points
                 session.setIsCompleted(true);
                 session.setSessionEnd(LocalDateTime.now());
                 session.setCustomerPointsAwarded(0);
                 gameSessionRepository.save(session);
+                onGameCompleted(session);
             }
         }
     }
@@ -349,6 +636,7 @@ public class GameService {
             GameSession session = getSessionById(sessionId);
 
             if (!session.getIsCompleted()) {
+                mergeActiveGame(session);
                 session.setIsCompleted(true);
                 session.setSessionEnd(LocalDateTime.now());
 
@@ -365,6 +653,7 @@ public class GameService {
                 }
 
                 gameSessionRepository.save(session);
+                onGameCompleted(session);
             }
         } catch (Exception e) {
             throw new RuntimeException("Failed to force end game session: " + e.getMessage());
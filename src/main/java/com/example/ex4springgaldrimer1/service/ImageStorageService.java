@@ -0,0 +1,415 @@
+package com.example.ex4springgaldrimer1.service;
+
+import com.example.ex4springgaldrimer1.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Product images on disk, named by the SHA-256 of their content so the same picture uploaded twice is stored once.
+ * Each original gets a thumbnail and a medium JPEG variant, generated on a small background pool after the upload
+ * returns. Until a variant exists, variantUrl falls back to the original, so pages never point at a missing file;
+ * which originals have their variants is tracked in memory, so rendering a card touches no files.
+ * Images over app.images.max-pixels are rejected from their header, before any pixels are decoded.
+ * Images are served from /images/products/ by ProductImageController; paths from before this store (classpath images)
+ * pass through as-is.
+ */
+@Service
+public class ImageStorageService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageStorageService.class);
+
+    public static final String URL_PREFIX = "/images/products/";
+
+    public enum Variant {
+        THUMBNAIL("thumb"), MEDIUM("medium");
+
+        private final String suffix;
+
+        Variant(String suffix) {
+            this.suffix = suffix;
+        }
+    }
+
+    // Formats the JDK can decode, by ImageIO format name, with the extension stored
+    private static final Map<String, String> EXTENSIONS = Map.of("jpeg", "jpg", "png", "png", "gif", "gif", "bmp", "bmp");
+
+    private static final Pattern ORIGINAL_NAME = Pattern.compile("([0-9a-f]{64})\\.(jpg|png|gif|bmp)");
+    private static final Pattern STORED_NAME = Pattern.compile("[0-9a-f]{64}(-(thumb|medium))?\\.(jpg|png|gif|bmp)");
+
+    private static final float JPEG_QUALITY = 0.82f;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private FragmentCache fragmentCache;
+
+    @Value("${app.images.dir:./data/images/products}")
+    private String directory;
+
+    @Value("${app.images.thumbnail-size:240}")
+    private int thumbnailSize;
+
+    @Value("${app.images.medium-size:640}")
+    private int mediumSize;
+
+    @Value("${app.images.variant-threads:2}")
+    private int variantThreads;
+
+    @Value("${app.images.variant-queue-capacity:200}")
+    private int variantQueueCapacity;
+
+    // Decoded as 4 bytes per pixel, so the default allows about 96 MB per image being resized
+    @Value("${app.images.max-pixels:24000000}")
+    private long maxPixels;
+
+    private Path root;
+    private ThreadPoolExecutor variantPool;
+
+    // Hashes of originals whose variants are all on disk
+    private final Set<String> withVariants = ConcurrentHashMap.newKeySet();
+
+    // Lifecycle
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(directory).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        variantPool = new ThreadPoolExecutor(variantThreads, variantThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(variantQueueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "image-variants-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        variantPool.shutdownNow();
+    }
+
+    /**
+     * Queue variants for originals that lack them, e.g. stored before a crash or while the queue was full.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void generateMissingVariants() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root)) {
+            for (Path file : files) {
+                Matcher name = ORIGINAL_NAME.matcher(file.getFileName().toString());
+                if (!name.matches()) {
+                    continue;
+                }
+                if (variantsExist(name.group(1))) {
+                    withVariants.add(name.group(1));
+                } else {
+                    scheduleVariants(file, name.group(1));
+                }
+            }
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    // Upload
+
+    /**
+     * Store an uploaded image and return its URL. Rejects anything the JDK cannot decode as an image,
+     * and images with more pixels than app.images.max-pixels.
+     */
+    public String store(MultipartFile file) throws IOException {
+        ImageHeader header;
+        try (InputStream input = file.getInputStream(); ImageInputStream probe = ImageIO.createImageInputStream(input)) {
+            header = readHeader(probe);
+        }
+        if (header == null || header.extension() == null) {
+            throw new IllegalArgumentException("Please upload a valid image file (JPG, PNG, GIF, BMP)");
+        }
+        if (tooLarge(header)) {
+            throw new IllegalArgumentException(String.format("Image is too large (%d x %d pixels); please upload at most %d megapixels",
+                    header.width(), header.height(), maxPixels / 1_000_000));
+        }
+        String extension = header.extension();
+
+        // Hash while copying to a temporary file, then move it into place under its content name
+        Path temp = Files.createTempFile(root, "upload-", ".tmp");
+        String hash;
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream input = new DigestInputStream(file.getInputStream(), digest);
+                 OutputStream output = Files.newOutputStream(temp)) {
+                input.transferTo(output);
+            }
+            hash = HexFormat.of().formatHex(digest.digest());
+
+            Path target = root.resolve(hash + "." + extension);
+            if (Files.exists(target)) {
+                log.debug("Image already stored: {}", target.getFileName());
+            } else {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                log.info("Image stored: {}", target.getFileName());
+            }
+            if (variantsExist(hash)) {
+                withVariants.add(hash);
+            } else {
+                scheduleVariants(target, hash);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return URL_PREFIX + hash + "." + extension;
+    }
+
+    /**
+     * Delete a stored image and its variants once no product refers to it any more.
+     * Call after the product row is gone; paths outside the store are ignored.
+     */
+    public void deleteIfUnused(String imageUrl) {
+        String hash = hashOf(imageUrl);
+        if (hash == null || productRepository.existsByImagePath(imageUrl)) {
+            return;
+        }
+        withVariants.remove(hash);
+        try {
+            Files.deleteIfExists(root.resolve(imageUrl.substring(URL_PREFIX.length())));
+            for (Variant variant : Variant.values()) {
+                Files.deleteIfExists(variantPath(hash, variant));
+            }
+            log.info("Deleted unused image: {}", imageUrl);
+        } catch (IOException e) {
+            log.warn("Failed to delete image {}", imageUrl, e);
+        }
+    }
+
+    // Templates
+
+    /**
+     * URL of the requested size of an image, or the image itself if it is not from this store or the
+     * variant is not ready yet. Used by the templates as ${@imageStorageService.variantUrl(path, 'thumbnail')}.
+     */
+    public String variantUrl(String imageUrl, String variant) {
+        String hash = hashOf(imageUrl);
+        if (hash == null) {
+            return imageUrl;
+        }
+        Variant size = Variant.valueOf(variant.toUpperCase(Locale.ROOT));
+        return withVariants.contains(hash) ? URL_PREFIX + variantName(hash, size) : imageUrl;
+    }
+
+    // Serving
+
+    /**
+     * File for a name under /images/products/ if it is an original or variant in this store, or null.
+     * Stored files never change, so the name doubles as a strong validator.
+     */
+    public Path findStoredFile(String fileName) {
+        if (fileName == null || !STORED_NAME.matcher(fileName).matches()) {
+            return null;
+        }
+        Path file = root.resolve(fileName);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    // Content hash of a URL from this store, or null
+    private static String hashOf(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith(URL_PREFIX)) {
+            return null;
+        }
+        Matcher name = ORIGINAL_NAME.matcher(imageUrl.substring(URL_PREFIX.length()));
+        return name.matches() ? name.group(1) : null;
+    }
+
+    // Variants
+    private void scheduleVariants(Path original, String hash) {
+        try {
+            variantPool.execute(() -> generateVariants(original, hash));
+        } catch (RejectedExecutionException e) {
+            // The original is served meanwhile; the next startup queues it again
+            log.warn("Image variant queue full, skipped {}", original.getFileName());
+        }
+    }
+
+    private void generateVariants(Path original, String hash) {
+        long started = System.nanoTime();
+        try {
+            // Originals stored before the pixel limit are checked here too, before decoding
+            ImageHeader header;
+            try (ImageInputStream probe = ImageIO.createImageInputStream(original.toFile())) {
+                header = readHeader(probe);
+            }
+            if (header != null && tooLarge(header)) {
+                log.warn("Image {} is too large for variants ({} x {} pixels)", original.getFileName(), header.width(), header.height());
+                return;
+            }
+
+            BufferedImage image = ImageIO.read(original.toFile());
+            if (image == null) {
+                log.warn("Cannot decode image {}", original.getFileName());
+                return;
+            }
+            for (Variant variant : Variant.values()) {
+                int size = variant == Variant.THUMBNAIL ? thumbnailSize : mediumSize;
+                writeJpeg(resize(image, size), variantPath(hash, variant));
+            }
+            withVariants.add(hash);
+            // Cards rendered meanwhile point at the original. A product saved after this sees the variants anyway
+            for (Long productId : productRepository.findIdsByImagePath(URL_PREFIX + original.getFileName())) {
+                fragmentCache.invalidate(FragmentCache.Scope.PRODUCT, productId);
+            }
+            log.debug("Image variants generated for {} in {} ms", original.getFileName(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to generate variants for {}", original.getFileName(), e);
+        }
+    }
+
+    private boolean variantsExist(String hash) {
+        for (Variant variant : Variant.values()) {
+            if (!Files.exists(variantPath(hash, variant))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Path variantPath(String hash, Variant variant) {
+        return root.resolve(variantName(hash, variant));
+    }
+
+    private static String variantName(String hash, Variant variant) {
+        return hash + "-" + variant.suffix + ".jpg";
+    }
+
+    /**
+     * Scale to fit within a square of the given size, never enlarging, on a white background so that
+     * transparent images flatten cleanly to JPEG. Large reductions are done in halving steps to keep detail.
+     */
+    static BufferedImage resize(BufferedImage source, int maxSize) {
+        double scale = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    // Written next to the target and moved into place, so a half-written variant is never served
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(root, "variant-", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Helpers
+
+    // Stored extension (null for formats not kept) and pixel size, read from the header only
+    private record ImageHeader(String extension, int width, int height) {
+    }
+
+    private static ImageHeader readHeader(ImageInputStream probe) throws IOException {
+        if (probe == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(probe);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(probe, true, true);
+            return new ImageHeader(EXTENSIONS.get(reader.getFormatName().toLowerCase(Locale.ROOT)),
+                    reader.getWidth(0), reader.getHeight(0));
+        } catch (IOException e) {
+            // Recognised signature but an unreadable header
+            return null;
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private boolean tooLarge(ImageHeader header) {
+        return (long) header.width() * header.height() > maxPixels;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
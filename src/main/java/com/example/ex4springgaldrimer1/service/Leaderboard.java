@@ -0,0 +1,289 @@
+package com.example.ex4springgaldrimer1.service;
+
+import com.example.ex4springgaldrimer1.entity.GameSession;
+import com.example.ex4springgaldrimer1.repository.GameSessionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory ranking of completed game sessions, highest score first and oldest session first on ties,
+ * the same order as GameSessionRepository.findTopScores. Loaded once at startup and updated as games end,
+ * so leaderboard pages never query. Sessions are held in a skip list keyed by (score, sessionId), so top-N
+ * and neighbours are O(log n + N). Ranks come from a Fenwick tree of session counts indexed by score plus
+ * the sorted session ids at each score, which makes a rank O(log maxScore + log ties). Scores are never negative.
+ */
+@Component
+public class Leaderboard {
+
+    private static final Comparator<Key> RANK_ORDER = Comparator
+            .comparingInt(Key::score).reversed()
+            .thenComparingLong(Key::sessionId);
+
+    @Autowired
+    private GameSessionRepository gameSessionRepository;
+
+    private final ConcurrentSkipListMap<Key, Entry> entries = new ConcurrentSkipListMap<>(RANK_ORDER);
+
+    // Rank index: Fenwick tree over scores (slot score + 1) and each score's session ids in ascending order.
+    // Guarded by rankLock; grown by doubling when a higher score arrives
+    private static final int INITIAL_SCORE_CAPACITY = 1024;
+    private final ReentrantReadWriteLock rankLock = new ReentrantReadWriteLock();
+    private long[] scoreTree = new long[INITIAL_SCORE_CAPACITY + 1];
+    private final Map<Integer, List<Long>> tiedSessionIds = new HashMap<>();
+    private long indexedSessions;
+
+    // Each user's best session, for rank lookups
+    private final Map<Long, Key> bestByUser = new ConcurrentHashMap<>();
+
+    // Serializes rebuild and add; a lock rather than a monitor, since rebuild holds it across a query
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private record Key(int score, long sessionId) {
+    }
+
+    // Lifecycle
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        writeLock.lock();
+        try {
+            entries.clear();
+            clearRankIndex();
+            bestByUser.clear();
+            for (Object[] row : gameSessionRepository.findLeaderboardRows()) {
+                add(new Entry((Long) row[0], (Long) row[1], (String) row[2],
+                        row[3] != null ? (Integer) row[3] : 0, (LocalDateTime) row[4]));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Add a session that has just been completed. Inside a transaction it is added after commit,
+     * so a rolled-back game never shows up.
+     */
+    public void record(GameSession session) {
+        if (session.getId() == null || session.getUser() == null || !Boolean.TRUE.equals(session.getIsCompleted())) {
+            return;
+        }
+
+        Entry entry = new Entry(session.getId(), session.getUser().getId(), session.getUser().getUsername(),
+                session.getCurrentScore() != null ? session.getCurrentScore() : 0, session.getSessionEnd());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(entry);
+                }
+            });
+        } else {
+            add(entry);
+        }
+    }
+
+    private void add(Entry entry) {
+        if (entry.getScore() < 0) {
+            throw new IllegalArgumentException("Leaderboard scores cannot be negative: " + entry.getScore());
+        }
+
+        writeLock.lock();
+        try {
+            Key key = new Key(entry.getScore(), entry.getSessionId());
+            if (entries.put(key, entry) == null) {
+                indexRank(key);
+            }
+            bestByUser.merge(entry.getUserId(), key, (current, candidate) -> RANK_ORDER.compare(candidate, current) < 0 ? candidate : current);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Reads
+    public List<Entry> getTop(int limit) {
+        List<Entry> top = new ArrayList<>();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (top.size() < limit && iterator.hasNext()) {
+            top.add(iterator.next());
+        }
+        return top;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Integer getHighestScore() {
+        Map.Entry<Key, Entry> first = entries.firstEntry();
+        return first != null ? first.getValue().getScore() : null;
+    }
+
+    /**
+     * 1-based position of the user's best session, or null if the user has not completed a game.
+     */
+    public Long getRank(Long userId) {
+        Key best = userId != null ? bestByUser.get(userId) : null;
+        return best != null ? rankOf(best) : null;
+    }
+
+    /**
+     * The user's best session with up to `radius` sessions on either side, or an empty list.
+     */
+    public List<Entry> getNeighbours(Long userId, int radius) {
+        Key best = userId != null ? bestByUser.get(userId) : null;
+        if (best == null) {
+            return List.of();
+        }
+
+        List<Entry> above = new ArrayList<>();
+        Iterator<Entry> up = entries.headMap(best, false).descendingMap().values().iterator();
+        while (above.size() < radius && up.hasNext()) {
+            above.add(0, up.next());
+        }
+
+        List<Entry> neighbours = new ArrayList<>(above);
+        Iterator<Entry> down = entries.tailMap(best, true).values().iterator();
+        while (neighbours.size() < above.size() + radius + 1 && down.hasNext()) {
+            neighbours.add(down.next());
+        }
+        return neighbours;
+    }
+
+    /**
+     * 1-based position of a session taken from this leaderboard.
+     */
+    public long getRank(Entry entry) {
+        return rankOf(new Key(entry.getScore(), entry.getSessionId()));
+    }
+
+    private long rankOf(Key key) {
+        rankLock.readLock().lock();
+        try {
+            long higher = indexedSessions - countAtOrBelow(key.score());
+
+            // Ties are ordered by session id; the position in the sorted ids is the number tied ahead
+            List<Long> tied = tiedSessionIds.get(key.score());
+            int position = tied != null ? Collections.binarySearch(tied, key.sessionId()) : -1;
+            long tiedBefore = position >= 0 ? position : -position - 1;
+            return higher + tiedBefore + 1;
+        } finally {
+            rankLock.readLock().unlock();
+        }
+    }
+
+    // Rank index
+    private void indexRank(Key key) {
+        rankLock.writeLock().lock();
+        try {
+            if (key.score() >= scoreTree.length - 1) {
+                growScoreTree(key.score());
+            }
+
+            // Session ids mostly arrive in increasing order, so this is usually an append
+            List<Long> tied = tiedSessionIds.computeIfAbsent(key.score(), score -> new ArrayList<>());
+            int position = Collections.binarySearch(tied, key.sessionId());
+            tied.add(-position - 1, key.sessionId());
+
+            addToScoreTree(scoreTree, key.score(), 1);
+            indexedSessions++;
+        } finally {
+            rankLock.writeLock().unlock();
+        }
+    }
+
+    private void clearRankIndex() {
+        rankLock.writeLock().lock();
+        try {
+            scoreTree = new long[INITIAL_SCORE_CAPACITY + 1];
+            tiedSessionIds.clear();
+            indexedSessions = 0;
+        } finally {
+            rankLock.writeLock().unlock();
+        }
+    }
+
+    private void growScoreTree(int score) {
+        int capacity = scoreTree.length - 1;
+        while (score >= capacity) {
+            capacity *= 2;
+        }
+
+        long[] grown = new long[capacity + 1];
+        for (Map.Entry<Integer, List<Long>> tied : tiedSessionIds.entrySet()) {
+            addToScoreTree(grown, tied.getKey(), tied.getValue().size());
+        }
+        scoreTree = grown;
+    }
+
+    private static void addToScoreTree(long[] tree, int score, long delta) {
+        for (int i = score + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Sessions with a score of at most `score`
+    private long countAtOrBelow(int score) {
+        long count = 0;
+        for (int i = Math.min(score + 1, scoreTree.length - 1); i > 0; i -= i & -i) {
+            count += scoreTree[i];
+        }
+        return count;
+    }
+
+    /**
+     * One completed session as shown on the leaderboard.
+     */
+    public static class Entry {
+
+        private final Long sessionId;
+        private final Long userId;
+        private final String username;
+        private final int score;
+        private final LocalDateTime sessionEnd;
+
+        Entry(Long sessionId, Long userId, String username, int score, LocalDateTime sessionEnd) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.username = username;
+            this.score = score;
+            this.sessionEnd = sessionEnd;
+        }
+
+        public Long getSessionId() {
+            return sessionId;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public LocalDateTime getSessionEnd() {
+            return sessionEnd;
+        }
+    }
+}
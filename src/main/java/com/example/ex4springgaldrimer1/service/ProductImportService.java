@@ -0,0 +1,511 @@
+package com.example.ex4springgaldrimer1.service;
+
+import com.example.ex4springgaldrimer1.csv.CsvReader;
+import com.example.ex4springgaldrimer1.entity.Product;
+import com.example.ex4springgaldrimer1.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk product import from CSV or NDJSON. Rows are parsed one at a time from the stream, validated against
+ * the Product constraints and written in batches, each batch in its own transaction, so memory use does not
+ * grow with the file and a failure part way keeps the batches already written.
+ * A row whose barcode already exists, or appeared earlier in the file, is skipped rather than updated.
+ */
+@Service
+public class ProductImportService {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    // Columns (or NDJSON fields) understood, compared ignoring case, spaces and underscores
+    private static final Set<String> COLUMNS = Set.of("name", "barcode", "price", "description", "category",
+            "brand", "stockquantity", "weight", "instock", "imagepath");
+    private static final List<String> REQUIRED_COLUMNS = List.of("name", "barcode", "price", "category");
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private FacetCache facetCache;
+
+    @Autowired
+    private FragmentCache fragmentCache;
+
+    @Autowired
+    private DashboardStatistics dashboardStatistics;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.product-import.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Receives the outcome of the import as it runs.
+     */
+    public interface Listener {
+
+        // After every batch written, and once more at the end
+        default void progress(ImportProgress progress) {
+        }
+
+        // Row not imported because its barcode is taken
+        default void rowSkipped(long line, String barcode, String reason) {
+        }
+
+        // Row not imported because it is malformed, invalid or rejected by the database
+        default void rowFailed(long line, String barcode, String reason) {
+        }
+    }
+
+    // Import
+
+    /**
+     * Import every row of the input. Problems with single rows are reported to the listener and do not stop
+     * the import; unreadable input (a CSV without the required columns, a broken quote) throws.
+     */
+    public ImportProgress importProducts(InputStream input, Format format, Listener listener) throws IOException {
+        ImportProgress progress = new ImportProgress();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Iterator<Row> rows = format == Format.CSV ? new CsvRows(reader) : new NdjsonRows(reader);
+
+        List<Row> batch = new ArrayList<>(batchSize);
+        Set<String> batchBarcodes = new HashSet<>();
+
+        try {
+            while (rows.hasNext()) {
+                Row row = rows.next();
+                progress.rowsRead++;
+
+                if (row.error != null) {
+                    reportFailed(progress, listener, row, row.error);
+                    continue;
+                }
+
+                try {
+                    row.product = toProduct(row.values);
+                } catch (IllegalArgumentException e) {
+                    reportFailed(progress, listener, row, e.getMessage());
+                    continue;
+                }
+
+                String violations = validate(row.product);
+                if (violations != null) {
+                    reportFailed(progress, listener, row, violations);
+                    continue;
+                }
+
+                if (!batchBarcodes.add(row.product.getBarcode())) {
+                    reportSkipped(progress, listener, row, "Barcode appears earlier in the file");
+                    continue;
+                }
+
+                batch.add(row);
+                if (batch.size() >= batchSize) {
+                    writeBatch(batch, progress, listener);
+                    batch.clear();
+                    batchBarcodes.clear();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            // Thrown by the row sources, since Iterator cannot throw IOException
+            throw e.getCause();
+        }
+
+        if (!batch.isEmpty()) {
+            writeBatch(batch, progress, listener);
+        }
+        progress.finish();
+        listener.progress(progress);
+        return progress;
+    }
+
+    // Batches
+
+    private void writeBatch(List<Row> batch, ImportProgress progress, Listener listener) {
+        // One query for the whole batch instead of an existence check per row
+        Set<String> taken = new HashSet<>(productRepository.findExistingBarcodes(
+                batch.stream().map(row -> row.product.getBarcode()).toList()));
+
+        List<Row> fresh = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            if (taken.contains(row.product.getBarcode())) {
+                reportSkipped(progress, listener, row, "Barcode already exists");
+            } else {
+                fresh.add(row);
+            }
+        }
+
+        List<Product> written = new ArrayList<>(fresh.size());
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try {
+            transaction.executeWithoutResult(status -> {
+                productRepository.saveAll(fresh.stream().map(row -> row.product).toList());
+                entityManager.flush();
+            });
+            fresh.forEach(row -> written.add(row.product));
+        } catch (RuntimeException e) {
+            // One bad row fails the whole batch; write the rows one by one to find it
+            for (Row row : fresh) {
+                row.product.setId(null);
+                try {
+                    transaction.executeWithoutResult(status -> {
+                        productRepository.save(row.product);
+                        entityManager.flush();
+                    });
+                    written.add(row.product);
+                } catch (RuntimeException rowError) {
+                    row.product.setId(null);
+                    reportFailed(progress, listener, row, rootMessage(rowError));
+                }
+            }
+        } finally {
+            // Written rows are not needed any more, keep the persistence context from growing with the file
+            entityManager.clear();
+        }
+
+        if (!written.isEmpty()) {
+            written.forEach(productSearchIndex::index);
+            facetCache.invalidate(FacetCache.Scope.PRODUCT);
+            // New rows have no cards yet, but may add a category to the navigation
+            fragmentCache.invalidateShared(FragmentCache.Scope.PRODUCT);
+            dashboardStatistics.markStale();
+        }
+        progress.imported += written.size();
+        listener.progress(progress);
+    }
+
+    private void reportSkipped(ImportProgress progress, Listener listener, Row row, String reason) {
+        progress.skipped++;
+        listener.rowSkipped(row.line, barcodeOf(row), reason);
+    }
+
+    private void reportFailed(ImportProgress progress, Listener listener, Row row, String reason) {
+        progress.failed++;
+        listener.rowFailed(row.line, barcodeOf(row), reason);
+    }
+
+    private static String barcodeOf(Row row) {
+        if (row.product != null) {
+            return row.product.getBarcode();
+        }
+        return row.values != null ? row.values.get("barcode") : null;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+    }
+
+    // Row mapping
+    private Product toProduct(Map<String, String> values) {
+        Product product = new Product();
+        product.setName(text(values, "name"));
+        product.setBarcode(text(values, "barcode"));
+        product.setPrice(decimal(values, "price"));
+        product.setDescription(text(values, "description"));
+        product.setCategory(text(values, "category"));
+        product.setBrand(text(values, "brand"));
+        BigDecimal weight = decimal(values, "weight");
+        product.setWeight(weight != null ? weight.doubleValue() : null);
+        product.setImagePath(text(values, "imagepath"));
+
+        Integer stockQuantity = integer(values, "stockquantity");
+        if (stockQuantity != null) {
+            product.setStockQuantity(stockQuantity);
+        }
+
+        // Without an explicit flag, stock decides whether the product is shown as in stock
+        Boolean inStock = bool(values, "instock");
+        if (inStock != null) {
+            product.setInStock(inStock);
+        } else if (stockQuantity != null) {
+            product.setInStock(stockQuantity > 0);
+        }
+        return product;
+    }
+
+    private String validate(Product product) {
+        Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+    }
+
+    private static String text(Map<String, String> values, String column) {
+        String value = values.get(column);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim();
+    }
+
+    private static BigDecimal decimal(Map<String, String> values, String column) {
+        String value = text(values, column);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static Integer integer(Map<String, String> values, String column) {
+        String value = text(values, column);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static Boolean bool(Map<String, String> values, String column) {
+        String value = text(values, column);
+        if (value == null) {
+            return null;
+        }
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "yes", "1":
+                return true;
+            case "false", "no", "0":
+                return false;
+            default:
+                throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static String normalizeColumn(String column) {
+        return column.replaceAll("[\\s_-]", "").toLowerCase(Locale.ROOT);
+    }
+
+    // Row sources
+
+    /**
+     * One input row: its column values by normalized name, or the reason it could not be read.
+     */
+    private static class Row {
+
+        private final long line;
+        private final Map<String, String> values;
+        private final String error;
+        private Product product;
+
+        Row(long line, Map<String, String> values, String error) {
+            this.line = line;
+            this.values = values;
+            this.error = error;
+        }
+    }
+
+    private static class CsvRows implements Iterator<Row> {
+
+        private final CsvReader csv;
+        private final List<String> header;
+        private List<String> next;
+
+        CsvRows(BufferedReader reader) throws IOException {
+            this.csv = new CsvReader(reader);
+            List<String> columns = csv.readRecord();
+            if (columns == null) {
+                throw new IOException("The file is empty");
+            }
+
+            header = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                String normalized = normalizeColumn(column.replace("\uFEFF", ""));
+                header.add(COLUMNS.contains(normalized) ? normalized : null);
+            }
+            Set<String> missing = new LinkedHashSet<>(REQUIRED_COLUMNS);
+            missing.removeAll(header);
+            if (!missing.isEmpty()) {
+                throw new IOException("Missing required column(s): " + String.join(", ", missing));
+            }
+            advance();
+        }
+
+        private void advance() {
+            try {
+                next = csv.readRecord();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Row next() {
+            List<String> fields = next;
+            long line = csv.getRecordLine();
+            advance();
+
+            if (fields.size() > header.size()) {
+                return new Row(line, null, "Expected " + header.size() + " fields but found " + fields.size());
+            }
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                if (header.get(i) != null) {
+                    values.put(header.get(i), fields.get(i));
+                }
+            }
+            return new Row(line, values, null);
+        }
+    }
+
+    private class NdjsonRows implements Iterator<Row> {
+
+        private final BufferedReader reader;
+        private final ObjectReader jsonReader = objectMapper.reader().with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        private String next;
+        private long line;
+        private long nextLine;
+
+        NdjsonRows(BufferedReader reader) {
+            this.reader = reader;
+            advance();
+        }
+
+        private void advance() {
+            try {
+                do {
+                    next = reader.readLine();
+                    nextLine++;
+                } while (next != null && next.isBlank());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Row next() {
+            String json = next;
+            line = nextLine;
+            advance();
+
+            JsonNode node;
+            try {
+                node = jsonReader.readTree(json);
+            } catch (JsonProcessingException e) {
+                return new Row(line, null, "Malformed JSON: " + e.getOriginalMessage());
+            }
+            if (node == null || !node.isObject()) {
+                return new Row(line, null, "Expected a JSON object");
+            }
+
+            Map<String, String> values = new HashMap<>();
+            node.fields().forEachRemaining(field -> {
+                String column = normalizeColumn(field.getKey());
+                if (COLUMNS.contains(column) && !field.getValue().isNull()) {
+                    values.put(column, field.getValue().isValueNode() ? field.getValue().asText() : field.getValue().toString());
+                }
+            });
+            return new Row(line, values, null);
+        }
+    }
+
+    // Progress
+
+    /**
+     * Running totals of an import; the same object is passed to every progress call.
+     */
+    public static class ImportProgress {
+
+        private final long startedAt = System.nanoTime();
+        private long rowsRead;
+        private long imported;
+        private long skipped;
+        private long failed;
+        private long elapsedMillis;
+        private boolean finished;
+
+        void finish() {
+            finished = true;
+            elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        }
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getElapsedMillis() {
+            return finished ? elapsedMillis : (System.nanoTime() - startedAt) / 1_000_000;
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+    }
+}
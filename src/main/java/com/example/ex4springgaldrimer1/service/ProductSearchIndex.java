@@ -0,0 +1,378 @@
+package com.example.ex4springgaldrimer1.service;
+
+import com.example.ex4springgaldrimer1.entity.Product;
+import com.example.ex4springgaldrimer1.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over product name, brand and description.
+ * A product matches by the same rule as the catalog's database queries (ProductRepository.searchWithFilters,
+ * ProductSpecifications, the facet counts): the trimmed query occurs, ignoring case, in the name, brand or
+ * description. Every query token narrows the candidates to products with a term containing it: exact terms and
+ * prefixes come from the sorted dictionary, infixes from an n-gram index over the terms. A single-word query needs
+ * nothing more; for any other query the ranked candidates are checked with the database's LIKE, by primary key,
+ * so no copy of the product text is kept. Matches are ranked with BM25, counting name and brand occurrences more
+ * than description occurrences and exact terms more than prefixes or infixes.
+ */
+@Component
+public class ProductSearchIndex {
+
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // A term that only starts with or contains the query token counts less than an exact match
+    private static final double PREFIX_MATCH_FACTOR = 0.6;
+    private static final double INFIX_MATCH_FACTOR = 0.3;
+
+    // Field weights applied to term frequency and document length
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // Terms are indexed by every substring up to this length; longer tokens intersect their trigrams
+    private static final int MAX_GRAM = 3;
+
+    // Candidate ids per database check of the full query
+    private static final int VERIFY_BATCH_SIZE = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (product id -> weighted term frequency), sorted so prefixes are a range scan
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    // substring of up to MAX_GRAM characters -> terms containing it, for infix lookups
+    private final Map<String, Set<String>> termsByGram = new HashMap<>();
+
+    // product id -> indexed terms, needed to remove or replace a product
+    private final Map<Long, Document> documents = new HashMap<>();
+
+    private long totalLength;
+
+    public record SearchResult(List<Long> productIds, long totalMatches) {
+    }
+
+    private record Document(Map<String, Integer> termFrequencies, int length) {
+    }
+
+    // Index maintenance
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Product> products = productRepository.findAll();
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            termsByGram.clear();
+            documents.clear();
+            totalLength = 0;
+            for (Product product : products) {
+                addDocument(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            addDocument(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Query
+
+    /**
+     * Rank the products containing the query and return one page of ids, best first.
+     * As with a Pageable, offset is expected to be a multiple of limit.
+     */
+    public SearchResult search(String query, long offset, int limit) {
+        String phrase = query != null ? query.trim().toLowerCase(Locale.ROOT) : "";
+        if (phrase.isEmpty()) {
+            return new SearchResult(List.of(), 0);
+        }
+        List<String> tokens = tokenize(phrase);
+        if (tokens.isEmpty()) {
+            // Only punctuation: there are no terms to look up, the database answers it in id order
+            Pageable pageable = limit == Integer.MAX_VALUE ? Pageable.unpaged() : PageRequest.of((int) (offset / limit), limit);
+            Page<Long> page = productRepository.findIdsContaining(phrase, pageable);
+            return new SearchResult(page.getContent(), page.getTotalElements());
+        }
+
+        List<Long> ranked;
+        lock.readLock().lock();
+        try {
+            ranked = rank(scoreAllTokens(tokens));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // A single word lies inside one term, so a product with a term containing it contains the query
+        if (tokens.size() == 1 && tokens.get(0).equals(phrase)) {
+            return new SearchResult(page(ranked, offset, limit), ranked.size());
+        }
+
+        // Several words or punctuation: the candidates contain every word, the database checks the whole query
+        List<Long> matches = new ArrayList<>();
+        for (int from = 0; from < ranked.size(); from += VERIFY_BATCH_SIZE) {
+            List<Long> batch = ranked.subList(from, Math.min(from + VERIFY_BATCH_SIZE, ranked.size()));
+            Set<Long> containing = new HashSet<>(productRepository.findIdsContaining(batch, phrase));
+            for (Long productId : batch) {
+                if (containing.contains(productId)) {
+                    matches.add(productId);
+                }
+            }
+        }
+        return new SearchResult(page(matches, offset, limit), matches.size());
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<Long> rank(Map<Long, Double> scores) {
+        List<Map.Entry<Long, Double>> entries = new ArrayList<>(scores.entrySet());
+        entries.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        List<Long> ranked = new ArrayList<>(entries.size());
+        for (Map.Entry<Long, Double> entry : entries) {
+            ranked.add(entry.getKey());
+        }
+        return ranked;
+    }
+
+    private static List<Long> page(List<Long> ranked, long offset, int limit) {
+        if (offset >= ranked.size()) {
+            return List.of();
+        }
+        return new ArrayList<>(ranked.subList((int) offset, (int) Math.min(ranked.size(), offset + limit)));
+    }
+
+    private Map<Long, Double> scoreAllTokens(List<String> tokens) {
+        int documentCount = documents.size();
+        if (documentCount == 0) {
+            return Map.of();
+        }
+        double averageLength = (double) totalLength / documentCount;
+
+        Map<Long, Double> scores = null;
+        for (String token : tokens) {
+            Map<Long, Double> tokenScores = scoreToken(token, documentCount, averageLength);
+
+            // AND semantics: keep only products matching every token so far
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                Map<Long, Double> combined = new HashMap<>();
+                for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                    Double tokenScore = tokenScores.get(entry.getKey());
+                    if (tokenScore != null) {
+                        combined.put(entry.getKey(), entry.getValue() + tokenScore);
+                    }
+                }
+                scores = combined;
+            }
+
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        return scores;
+    }
+
+    // Best score per product over every indexed term containing the token
+    private Map<Long, Double> scoreToken(String token, int documentCount, double averageLength) {
+        Map<Long, Double> tokenScores = new HashMap<>();
+
+        Map<Long, Integer> exact = postings.get(token);
+        if (exact != null) {
+            addTermScores(tokenScores, exact, 1.0, documentCount, averageLength);
+        }
+        for (Map<Long, Integer> posting : postings.subMap(token, false, token + Character.MAX_VALUE, false).values()) {
+            addTermScores(tokenScores, posting, PREFIX_MATCH_FACTOR, documentCount, averageLength);
+        }
+        for (String term : infixTerms(token)) {
+            addTermScores(tokenScores, postings.get(term), INFIX_MATCH_FACTOR, documentCount, averageLength);
+        }
+        return tokenScores;
+    }
+
+    private void addTermScores(Map<Long, Double> tokenScores, Map<Long, Integer> posting, double factor,
+                               int documentCount, double averageLength) {
+        double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+
+        for (Map.Entry<Long, Integer> entry : posting.entrySet()) {
+            int frequency = entry.getValue();
+            int length = documents.get(entry.getKey()).length();
+            double score = factor * idf * (frequency * (K1 + 1))
+                    / (frequency + K1 * (1 - B + B * length / averageLength));
+            tokenScores.merge(entry.getKey(), score, Math::max);
+        }
+    }
+
+    // Terms containing the token somewhere after their first character
+    private List<String> infixTerms(String token) {
+        Set<String> candidates;
+        if (token.length() <= MAX_GRAM) {
+            candidates = termsByGram.getOrDefault(token, Set.of());
+        } else {
+            // The rarest trigram bounds the terms to check
+            candidates = null;
+            for (int i = 0; i + MAX_GRAM <= token.length(); i++) {
+                Set<String> terms = termsByGram.get(token.substring(i, i + MAX_GRAM));
+                if (terms == null) {
+                    return List.of();
+                }
+                if (candidates == null || terms.size() < candidates.size()) {
+                    candidates = terms;
+                }
+            }
+        }
+
+        List<String> infixes = new ArrayList<>();
+        for (String term : candidates) {
+            if (!term.startsWith(token) && term.contains(token)) {
+                infixes.add(term);
+            }
+        }
+        return infixes;
+    }
+
+    // Helpers (callers hold the write lock)
+    private void addDocument(Product product) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = addField(frequencies, product.getName(), NAME_WEIGHT)
+                + addField(frequencies, product.getBrand(), BRAND_WEIGHT)
+                + addField(frequencies, product.getDescription(), DESCRIPTION_WEIGHT);
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            Map<Long, Integer> posting = postings.get(entry.getKey());
+            if (posting == null) {
+                posting = new HashMap<>();
+                postings.put(entry.getKey(), posting);
+                addGrams(entry.getKey());
+            }
+            posting.put(product.getId(), entry.getValue());
+        }
+        documents.put(product.getId(), new Document(frequencies, length));
+        totalLength += length;
+    }
+
+    private void removeDocument(Long productId) {
+        Document document = documents.remove(productId);
+        if (document == null) {
+            return;
+        }
+
+        for (String term : document.termFrequencies().keySet()) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                    removeGrams(term);
+                }
+            }
+        }
+        totalLength -= document.length();
+    }
+
+    private void addGrams(String term) {
+        for (String gram : grams(term)) {
+            termsByGram.computeIfAbsent(gram, key -> new HashSet<>()).add(term);
+        }
+    }
+
+    private void removeGrams(String term) {
+        for (String gram : grams(term)) {
+            Set<String> terms = termsByGram.get(gram);
+            if (terms != null) {
+                terms.remove(term);
+                if (terms.isEmpty()) {
+                    termsByGram.remove(gram);
+                }
+            }
+        }
+    }
+
+    // Every distinct substring of the term up to MAX_GRAM characters
+    private static Set<String> grams(String term) {
+        Set<String> grams = new HashSet<>();
+        for (int length = 1; length <= MAX_GRAM; length++) {
+            for (int i = 0; i + length <= term.length(); i++) {
+                grams.add(term.substring(i, i + length));
+            }
+        }
+        return grams;
+    }
+
+    private static int addField(Map<String, Integer> frequencies, String text, int weight) {
+        List<String> tokens = tokenize(text);
+        for (String token : tokens) {
+            frequencies.merge(token, weight, Integer::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -4,10 +4,14 @@ import com.example.ex4springgaldrimer1.entity.Product;
 import com.example.ex4springgaldrimer1.entity.ProductComment;
 import com.example.ex4springgaldrimer1.entity.User;
 import com.example.ex4springgaldrimer1.enums.CommentStatus;
+import com.example.ex4springgaldrimer1.pagination.KeysetPage;
+import com.example.ex4springgaldrimer1.projection.ReviewView;
 import com.example.ex4springgaldrimer1.repository.ProductCommentRepository;
 import com.example.ex4springgaldrimer1.repository.ProductRepository;
+import com.example.ex4springgaldrimer1.repository.ProductSpecifications;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -15,22 +19,46 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
 public class ProductService {
 
+    // Columns a keyset-paged listing may be ordered by
+    private static final Set<String> KEYSET_SORT_PROPERTIES = Set.of("name", "price", "createdDate", "category", "brand");
+
     @Autowired
     private ProductRepository productRepository;
 
     @Autowired
     private ProductCommentRepository productCommentRepository;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private FacetCache facetCache;
+
+    @Autowired
+    private DashboardStatistics dashboardStatistics;
+
+    @Autowired
+    private FragmentCache fragmentCache;
+
     // Product CRUD operations
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        productSearchIndex.index(saved);
+        facetCache.invalidate(FacetCache.Scope.PRODUCT);
+        fragmentCache.invalidate(FragmentCache.Scope.PRODUCT, saved.getId());
+        dashboardStatistics.markStale();
+        return saved;
     }
 
     public Product createProduct(String name, String barcode, BigDecimal price, String description, String category) {
@@ -40,7 +68,7 @@ public class ProductService {
         }
 
         Product product = new Product(name, barcode, price, description, category);
-        return productRepository.save(product);
+        return saveProduct(product);
     }
 
     public Optional<Product> findById(Long id) {
@@ -70,11 +98,15 @@ public class ProductService {
 
     public void deleteProduct(Long id) {
         productRepository.deleteById(id);
+        productSearchIndex.remove(id);
+        facetCache.invalidate(FacetCache.Scope.PRODUCT);
+        fragmentCache.invalidate(FragmentCache.Scope.PRODUCT, id);
+        dashboardStatistics.markStale();
     }
 
     // Category operations
     public List<String> getAllCategories() {
-        return productRepository.findAllCategories();
+        return facetCache.get(FacetCache.Facet.CATEGORIES, productRepository::findAllCategories);
     }
 
     public List<Product> getProductsByCategory(String category) {
@@ -83,7 +115,7 @@ public class ProductService {
 
     // Brand operations
     public List<String> getAllBrands() {
-        return productRepository.findAllBrands();
+        return facetCache.get(FacetCache.Facet.BRANDS, productRepository::findAllBrands);
     }
 
     public List<Product> getProductsByBrand(String brand) {
@@ -95,7 +127,31 @@ public class ProductService {
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
             return getAllProducts();
         }
-        return productRepository.searchProducts(searchTerm.trim());
+        return searchProducts(searchTerm, Pageable.unpaged()).getContent();
+    }
+
+    /**
+     * Relevance-ranked search through the in-memory index; only the requested page is loaded from the database.
+     */
+    public Page<Product> searchProducts(String searchTerm, Pageable pageable) {
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        int limit = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        ProductSearchIndex.SearchResult result = productSearchIndex.search(searchTerm, offset, limit);
+
+        Map<Long, Product> productsById = new HashMap<>();
+        for (Product product : productRepository.findAllById(result.productIds())) {
+            productsById.put(product.getId(), product);
+        }
+
+        // Keep the ranking order; ids deleted since indexing are skipped
+        List<Product> content = new ArrayList<>(result.productIds().size());
+        for (Long productId : result.productIds()) {
+            Product product = productsById.get(productId);
+            if (product != null) {
+                content.add(product);
+            }
+        }
+        return new PageImpl<>(content, pageable, result.totalMatches());
     }
 
     public List<Product> searchProductsByName(String name) {
@@ -126,6 +182,27 @@ public class ProductService {
         return productRepository.findWithFilters(name, category, brand, minPrice, maxPrice, inStock, pageable);
     }
 
+    public Page<Product> searchProductsWithFilters(String searchTerm, String category, String brand,
+                                                   BigDecimal minPrice, BigDecimal maxPrice,
+                                                   Boolean inStock, Pageable pageable) {
+        return productRepository.searchWithFilters(searchTerm.trim(), category, brand, minPrice, maxPrice, inStock, pageable);
+    }
+
+    /**
+     * Filtered listing paged by cursor: pass the previous page's nextCursor as after, or null for the first page.
+     * The total is only counted when withTotal is set. Unknown sort properties fall back to name.
+     */
+    public KeysetPage<Product> getProductsAfter(String name, String searchTerm, String category, String brand,
+                                                BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock,
+                                                String sortProperty, Sort.Direction direction,
+                                                int size, String after, boolean withTotal) {
+        String property = KEYSET_SORT_PROPERTIES.contains(sortProperty) ? sortProperty : "name";
+        String search = searchTerm != null ? searchTerm.trim() : null;
+        return KeysetPage.fetch(productRepository,
+                ProductSpecifications.withFilters(name, search, category, brand, minPrice, maxPrice, inStock),
+                property, direction, size, after, withTotal);
+    }
+
     // Featured products
     public List<Product> getNewestProducts(int limit) {
         Pageable pageable = PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "createdDate"));
@@ -145,9 +222,14 @@ public class ProductService {
     // Stock management
     public void updateStock(Long productId, Integer quantity) {
         Product product = getProductById(productId);
+        boolean stockStatusChanged = !Boolean.valueOf(quantity > 0).equals(product.getInStock());
         product.setStockQuantity(quantity);
         product.setInStock(quantity > 0);
         productRepository.save(product);
+        fragmentCache.invalidate(FragmentCache.Scope.PRODUCT, productId);
+        if (stockStatusChanged) {
+            facetCache.invalidate(FacetCache.Scope.PRODUCT); // the in-stock facet counts moved
+        }
     }
 
     public void decreaseStock(Long productId, Integer quantity) {
@@ -172,6 +254,7 @@ public class ProductService {
 
         ProductComment comment = new ProductComment(title, content, rating, user, product);
         ProductComment savedComment = productCommentRepository.save(comment);
+        dashboardStatistics.markStale();
 
         // Award customer points for writing a review
         if (user.getRole() == com.example.ex4springgaldrimer1.enums.Role.CUSTOMER) {
@@ -193,22 +276,80 @@ public class ProductService {
         return productCommentRepository.findByStatusOrderByTimestampAsc(CommentStatus.PENDING);
     }
 
+    /**
+     * Approved reviews of a product with their reviewers' usernames, for rendering outside a transaction.
+     */
+    public List<ReviewView> getApprovedReviews(Long productId) {
+        return productCommentRepository.findReviewsByProductIdAndStatus(productId, CommentStatus.APPROVED);
+    }
+
+    /**
+     * Pending reviews, oldest first, with product names and usernames.
+     */
+    public List<ReviewView> getPendingReviews() {
+        return productCommentRepository.findReviewsByStatus(CommentStatus.PENDING);
+    }
+
     public void approveComment(Long commentId) {
+        changeCommentStatus(commentId, CommentStatus.APPROVED);
+    }
+
+    public void rejectComment(Long commentId) {
+        changeCommentStatus(commentId, CommentStatus.REJECTED);
+    }
+
+    public void deleteComment(Long commentId) {
         ProductComment comment = productCommentRepository.findById(commentId)
                 .orElseThrow(() -> new RuntimeException("Comment not found"));
-        comment.setStatus(CommentStatus.APPROVED);
-        productCommentRepository.save(comment);
+        Long productId = comment.getProduct().getId();
+        boolean wasApproved = comment.getStatus() == CommentStatus.APPROVED;
+        int rating = comment.getRating();
+
+        productCommentRepository.delete(comment);
+        dashboardStatistics.markStale();
+        if (wasApproved) {
+            productRepository.adjustRatingAggregates(productId, rating, -1);
+            fragmentCache.invalidate(FragmentCache.Scope.PRODUCT, productId);
+        }
     }
 
-    public void rejectComment(Long commentId) {
+    // Keep the product's approved review aggregates in step with the comment's status
+    private void changeCommentStatus(Long commentId, CommentStatus newStatus) {
         ProductComment comment = productCommentRepository.findById(commentId)
                 .orElseThrow(() -> new RuntimeException("Comment not found"));
-        comment.setStatus(CommentStatus.REJECTED);
+        CommentStatus oldStatus = comment.getStatus();
+        if (oldStatus == newStatus) {
+            return;
+        }
+
+        comment.setStatus(newStatus);
         productCommentRepository.save(comment);
+        dashboardStatistics.markStale();
+
+        if (newStatus == CommentStatus.APPROVED) {
+            productRepository.adjustRatingAggregates(comment.getProduct().getId(), comment.getRating(), 1);
+        } else if (oldStatus == CommentStatus.APPROVED) {
+            productRepository.adjustRatingAggregates(comment.getProduct().getId(), comment.getRating(), -1);
+        }
+        if (newStatus == CommentStatus.APPROVED || oldStatus == CommentStatus.APPROVED) {
+            fragmentCache.invalidate(FragmentCache.Scope.PRODUCT, comment.getProduct().getId());
+        }
     }
 
-    public void deleteComment(Long commentId) {
-        productCommentRepository.deleteById(commentId);
+    /**
+     * Recalculate the aggregates only when their total disagrees with the approved comments, as for
+     * rows written before the aggregate columns existed. Returns the rows updated, 0 if already in step.
+     */
+    public int recalculateRatingAggregatesIfStale() {
+        if (productRepository.sumApprovedReviewCounts() == productCommentRepository.countByStatus(CommentStatus.APPROVED)) {
+            return 0;
+        }
+        return recalculateRatingAggregates();
+    }
+
+    public int recalculateRatingAggregates() {
+        fragmentCache.invalidateAll(FragmentCache.Scope.PRODUCT);
+        return productRepository.recalculateRatingAggregates();
     }
 
     // Statistics and analytics
@@ -228,13 +369,13 @@ public class ProductService {
         return productRepository.countByCategory(category);
     }
 
+    // Served from the denormalized aggregates; the product is usually already in the persistence context
     public double getProductAverageRating(Long productId) {
-        Double rating = productCommentRepository.findAverageRatingByProductIdAndStatus(productId, CommentStatus.APPROVED);
-        return rating != null ? rating : 0.0;
+        return productRepository.findById(productId).map(Product::getAverageRating).orElse(0.0);
     }
 
     public long getProductReviewCount(Long productId) {
-        return productCommentRepository.countByProductIdAndStatus(productId, CommentStatus.APPROVED);
+        return productRepository.findById(productId).map(Product::getApprovedCommentsCount).orElse(0L);
     }
 
     // Validation methods
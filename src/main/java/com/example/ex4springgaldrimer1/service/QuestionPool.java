@@ -0,0 +1,255 @@
+package com.example.ex4springgaldrimer1.service;
+
+import com.example.ex4springgaldrimer1.entity.GameQuestion;
+import com.example.ex4springgaldrimer1.enums.QuestionType;
+import com.example.ex4springgaldrimer1.repository.GameQuestionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory pool of active game question IDs, bucketed by question type and difficulty.
+ * Replaces the ORDER BY RAND() queries on the game hot path. The pool is an immutable
+ * snapshot swapped on every admin change, so readers never lock.
+ */
+@Component
+public class QuestionPool {
+
+    // Random probes before falling back to a scan of the remaining candidates
+    private static final int MAX_RANDOM_PROBES = 8;
+
+    @Autowired
+    private GameQuestionRepository gameQuestionRepository;
+
+    private volatile Snapshot snapshot;
+
+    // Serializes rebuilds and changes; a lock rather than a monitor, since a rebuild holds it across a query
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // Pool lifecycle
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        writeLock.lock();
+        try {
+            Map<Long, Entry> entries = new HashMap<>();
+            for (Object[] row : gameQuestionRepository.findActiveQuestionKeys()) {
+                Long id = (Long) row[0];
+                entries.put(id, new Entry(id, (QuestionType) row[1], (Integer) row[2]));
+            }
+            snapshot = new Snapshot(entries);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Add, move or drop a question depending on its current active flag, type and difficulty.
+     */
+    public void update(GameQuestion question) {
+        if (question == null || question.getId() == null) {
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            Map<Long, Entry> entries = new HashMap<>(current().entries);
+            if (Boolean.TRUE.equals(question.getIsActive()) && question.getQuestionType() != null) {
+                entries.put(question.getId(), new Entry(question.getId(), question.getQuestionType(), question.getDifficultyLevel()));
+            } else {
+                entries.remove(question.getId());
+            }
+            snapshot = new Snapshot(entries);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void remove(Long questionId) {
+        writeLock.lock();
+        try {
+            Snapshot current = current();
+            if (questionId == null || !current.entries.containsKey(questionId)) {
+                return;
+            }
+
+            Map<Long, Entry> entries = new HashMap<>(current.entries);
+            entries.remove(questionId);
+            snapshot = new Snapshot(entries);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Random selection
+
+    /**
+     * Pick a random active question ID that the predicate does not exclude.
+     * Pass null for type or difficulty to match any value.
+     *
+     * @return the question ID, or null when every candidate is excluded
+     */
+    public Long pickRandom(QuestionType type, Integer difficultyLevel, LongPredicate excluded) {
+        long[] candidates = current().bucket(type, difficultyLevel);
+        if (candidates.length == 0) {
+            return null;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        // Asked questions are a small fraction of the pool, so a few probes almost always hit
+        for (int i = 0; i < MAX_RANDOM_PROBES; i++) {
+            long id = candidates[random.nextInt(candidates.length)];
+            if (!excluded.test(id)) {
+                return id;
+            }
+        }
+
+        // Mostly exhausted bucket: scan from a random offset so the pick stays unbiased enough
+        int start = random.nextInt(candidates.length);
+        for (int i = 0; i < candidates.length; i++) {
+            long id = candidates[(start + i) % candidates.length];
+            if (!excluded.test(id)) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    public Long pickRandom(LongPredicate excluded) {
+        return pickRandom(null, null, excluded);
+    }
+
+    // Statistics
+    public int size() {
+        return current().all.length;
+    }
+
+    public int size(QuestionType type, Integer difficultyLevel) {
+        return current().bucket(type, difficultyLevel).length;
+    }
+
+    /**
+     * Active questions whose stored difficulty is exactly the given level (null for none), whichever bucket
+     * they are picked from.
+     */
+    public int countByStoredDifficulty(Integer difficultyLevel) {
+        return current().storedDifficultyCounts.getOrDefault(difficultyLevel, 0);
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            writeLock.lock();
+            try {
+                if (snapshot == null) {
+                    rebuild();
+                }
+                current = snapshot;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    private static int normalizeDifficulty(Integer difficultyLevel) {
+        if (difficultyLevel == null || difficultyLevel < 1) return 1;
+        return Math.min(difficultyLevel, Snapshot.MAX_DIFFICULTY);
+    }
+
+    // Picked from the bucket of the stored difficulty clamped to 1..3; counted by the stored value
+    private record Entry(Long id, QuestionType type, Integer storedDifficulty) {
+
+        int difficulty() {
+            return normalizeDifficulty(storedDifficulty);
+        }
+    }
+
+    /**
+     * Immutable view of the pool. Buckets are plain long arrays so a pick is one array read.
+     */
+    private static final class Snapshot {
+
+        private static final int MAX_DIFFICULTY = 3;
+        private static final long[] EMPTY = new long[0];
+
+        private final Map<Long, Entry> entries;
+        private final long[] all;
+        private final Map<QuestionType, long[]> byType = new EnumMap<>(QuestionType.class);
+        private final long[][] byDifficulty = new long[MAX_DIFFICULTY + 1][];
+        private final Map<QuestionType, long[][]> byTypeAndDifficulty = new EnumMap<>(QuestionType.class);
+        private final Map<Integer, Integer> storedDifficultyCounts = new HashMap<>();
+
+        Snapshot(Map<Long, Entry> entries) {
+            this.entries = entries;
+            this.all = entries.keySet().stream().mapToLong(Long::longValue).toArray();
+
+            Map<QuestionType, List<Long>> typeLists = new EnumMap<>(QuestionType.class);
+            List<List<Long>> difficultyLists = new ArrayList<>();
+            Map<QuestionType, List<List<Long>>> typeDifficultyLists = new EnumMap<>(QuestionType.class);
+            for (int d = 0; d <= MAX_DIFFICULTY; d++) {
+                difficultyLists.add(new ArrayList<>());
+            }
+
+            for (Entry entry : entries.values()) {
+                typeLists.computeIfAbsent(entry.type(), t -> new ArrayList<>()).add(entry.id());
+                difficultyLists.get(entry.difficulty()).add(entry.id());
+                storedDifficultyCounts.merge(entry.storedDifficulty(), 1, Integer::sum);
+                typeDifficultyLists.computeIfAbsent(entry.type(), t -> {
+                    List<List<Long>> lists = new ArrayList<>();
+                    for (int d = 0; d <= MAX_DIFFICULTY; d++) {
+                        lists.add(new ArrayList<>());
+                    }
+                    return lists;
+                }).get(entry.difficulty()).add(entry.id());
+            }
+
+            typeLists.forEach((type, ids) -> byType.put(type, toArray(ids)));
+            for (int d = 0; d <= MAX_DIFFICULTY; d++) {
+                byDifficulty[d] = toArray(difficultyLists.get(d));
+            }
+            typeDifficultyLists.forEach((type, lists) -> {
+                long[][] buckets = new long[MAX_DIFFICULTY + 1][];
+                for (int d = 0; d <= MAX_DIFFICULTY; d++) {
+                    buckets[d] = toArray(lists.get(d));
+                }
+                byTypeAndDifficulty.put(type, buckets);
+            });
+        }
+
+        long[] bucket(QuestionType type, Integer difficultyLevel) {
+            if (type == null && difficultyLevel == null) {
+                return all;
+            }
+            if (difficultyLevel != null && (difficultyLevel < 1 || difficultyLevel > MAX_DIFFICULTY)) {
+                return EMPTY;
+            }
+            if (type == null) {
+                return byDifficulty[difficultyLevel];
+            }
+            if (difficultyLevel == null) {
+                return byType.getOrDefault(type, EMPTY);
+            }
+            long[][] buckets = byTypeAndDifficulty.get(type);
+            return buckets != null ? buckets[difficultyLevel] : EMPTY;
+        }
+
+        private static long[] toArray(List<Long> ids) {
+            if (ids.isEmpty()) return EMPTY;
+            long[] result = ids.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
@@ -4,8 +4,12 @@ import com.example.ex4springgaldrimer1.entity.Store;
 import com.example.ex4springgaldrimer1.entity.StoreComment;
 import com.example.ex4springgaldrimer1.entity.User;
 import com.example.ex4springgaldrimer1.enums.CommentStatus;
+import com.example.ex4springgaldrimer1.pagination.KeysetPage;
+import com.example.ex4springgaldrimer1.projection.StoreReviewView;
+import com.example.ex4springgaldrimer1.projection.StoreSummaryView;
 import com.example.ex4springgaldrimer1.repository.StoreCommentRepository;
 import com.example.ex4springgaldrimer1.repository.StoreRepository;
+import com.example.ex4springgaldrimer1.repository.StoreSpecifications;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -16,20 +20,37 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
 public class StoreService {
 
+    // Columns a keyset-paged listing may be ordered by
+    private static final Set<String> KEYSET_SORT_PROPERTIES = Set.of("name", "city", "state", "zipCode", "openingDate");
+
     @Autowired
     private StoreRepository storeRepository;
 
     @Autowired
     private StoreCommentRepository storeCommentRepository;
 
+    @Autowired
+    private FacetCache facetCache;
+
+    @Autowired
+    private DashboardStatistics dashboardStatistics;
+
+    @Autowired
+    private FragmentCache fragmentCache;
+
     // Store CRUD operations
     public Store saveStore(Store store) {
-        return storeRepository.save(store);
+        Store saved = storeRepository.save(store);
+        facetCache.invalidate(FacetCache.Scope.STORE);
+        fragmentCache.invalidate(FragmentCache.Scope.STORE, saved.getId());
+        dashboardStatistics.markStale();
+        return saved;
     }
 
     public Store createStore(String name, String address, String city, String state, String zipCode) {
@@ -39,7 +60,7 @@ public class StoreService {
         }
 
         Store store = new Store(name, address, city, state, zipCode);
-        return storeRepository.save(store);
+        return saveStore(store);
     }
 
     public Optional<Store> findById(Long id) {
@@ -69,33 +90,43 @@ public class StoreService {
 
     public void deleteStore(Long id) {
         storeRepository.deleteById(id);
+        facetCache.invalidate(FacetCache.Scope.STORE);
+        fragmentCache.invalidate(FragmentCache.Scope.STORE, id);
+        dashboardStatistics.markStale();
     }
 
     public void activateStore(Long id) {
         Store store = getStoreById(id);
         store.setIsActive(true);
-        storeRepository.save(store);
+        saveStore(store);
     }
 
     public void deactivateStore(Long id) {
         Store store = getStoreById(id);
         store.setIsActive(false);
-        storeRepository.save(store);
+        saveStore(store);
     }
 
     // Location operations
     public List<String> getAllActiveCities() {
-        return storeRepository.findAllActiveCities();
+        return facetCache.get(FacetCache.Facet.CITIES, storeRepository::findAllActiveCities);
     }
 
     public List<String> getAllActiveStates() {
-        return storeRepository.findAllActiveStates();
+        return facetCache.get(FacetCache.Facet.STATES, storeRepository::findAllActiveStates);
     }
 
     public List<Store> getStoresByCity(String city) {
         return storeRepository.findByCityIgnoreCase(city);
     }
 
+    /**
+     * Up to limit other active stores in the same city as the given store.
+     */
+    public List<StoreSummaryView> getOtherStoresInCity(String city, Long storeId, int limit) {
+        return storeRepository.findOtherActiveStoresInCity(city, storeId, PageRequest.of(0, limit));
+    }
+
     public List<Store> getStoresByState(String state) {
         return storeRepository.findByStateIgnoreCase(state);
     }
@@ -127,6 +158,27 @@ public class StoreService {
         return storeRepository.findWithFilters(name, city, state, zipCode, isActive, parkingAvailable, driveThrough, pageable);
     }
 
+    public Page<Store> searchStoresWithFilters(String searchTerm, String city, String state, String zipCode,
+                                               Boolean isActive, Boolean parkingAvailable, Boolean driveThrough,
+                                               Pageable pageable) {
+        return storeRepository.searchWithFilters(searchTerm.trim(), city, state, zipCode, isActive, parkingAvailable, driveThrough, pageable);
+    }
+
+    /**
+     * Filtered listing paged by cursor: pass the previous page's nextCursor as after, or null for the first page.
+     * The total is only counted when withTotal is set. Unknown sort properties fall back to name.
+     */
+    public KeysetPage<Store> getStoresAfter(String name, String searchTerm, String city, String state, String zipCode,
+                                            Boolean isActive, Boolean parkingAvailable, Boolean driveThrough,
+                                            String sortProperty, Sort.Direction direction,
+                                            int size, String after, boolean withTotal) {
+        String property = KEYSET_SORT_PROPERTIES.contains(sortProperty) ? sortProperty : "name";
+        String search = searchTerm != null ? searchTerm.trim() : null;
+        return KeysetPage.fetch(storeRepository,
+                StoreSpecifications.withFilters(name, search, city, state, zipCode, isActive, parkingAvailable, driveThrough),
+                property, direction, size, after, withTotal);
+    }
+
     // Feature-based queries
     public List<Store> getStoresWithParking() {
         return storeRepository.findByParkingAvailable(true);
@@ -176,6 +228,7 @@ public class StoreService {
 
         StoreComment comment = new StoreComment(title, content, rating, user, store);
         StoreComment savedComment = storeCommentRepository.save(comment);
+        dashboardStatistics.markStale();
 
         // Award customer points for writing a review
         if (user.getRole() == com.example.ex4springgaldrimer1.enums.Role.CUSTOMER) {
@@ -197,6 +250,7 @@ public class StoreService {
         comment.setWouldRecommend(wouldRecommend);
 
         StoreComment savedComment = storeCommentRepository.save(comment);
+        dashboardStatistics.markStale();
 
         // Award customer points for detailed review
         if (user.getRole() == com.example.ex4springgaldrimer1.enums.Role.CUSTOMER) {
@@ -218,22 +272,80 @@ public class StoreService {
         return storeCommentRepository.findByStatusOrderByTimestampAsc(CommentStatus.PENDING);
     }
 
+    /**
+     * Approved reviews of a store with their reviewers' usernames, for rendering outside a transaction.
+     */
+    public List<StoreReviewView> getApprovedReviews(Long storeId) {
+        return storeCommentRepository.findReviewsByStoreIdAndStatus(storeId, CommentStatus.APPROVED);
+    }
+
+    /**
+     * Pending reviews, oldest first, with store names and usernames.
+     */
+    public List<StoreReviewView> getPendingReviews() {
+        return storeCommentRepository.findReviewsByStatus(CommentStatus.PENDING);
+    }
+
     public void approveComment(Long commentId) {
+        changeCommentStatus(commentId, CommentStatus.APPROVED);
+    }
+
+    public void rejectComment(Long commentId) {
+        changeCommentStatus(commentId, CommentStatus.REJECTED);
+    }
+
+    public void deleteComment(Long commentId) {
         StoreComment comment = storeCommentRepository.findById(commentId)
                 .orElseThrow(() -> new RuntimeException("Comment not found"));
-        comment.setStatus(CommentStatus.APPROVED);
-        storeCommentRepository.save(comment);
+        Long storeId = comment.getStore().getId();
+        boolean wasApproved = comment.getStatus() == CommentStatus.APPROVED;
+        int rating = comment.getRating();
+
+        storeCommentRepository.delete(comment);
+        dashboardStatistics.markStale();
+        if (wasApproved) {
+            storeRepository.adjustRatingAggregates(storeId, rating, -1);
+            fragmentCache.invalidate(FragmentCache.Scope.STORE, storeId);
+        }
     }
 
-    public void rejectComment(Long commentId) {
+    // Keep the store's approved review aggregates in step with the comment's status
+    private void changeCommentStatus(Long commentId, CommentStatus newStatus) {
         StoreComment comment = storeCommentRepository.findById(commentId)
                 .orElseThrow(() -> new RuntimeException("Comment not found"));
-        comment.setStatus(CommentStatus.REJECTED);
+        CommentStatus oldStatus = comment.getStatus();
+        if (oldStatus == newStatus) {
+            return;
+        }
+
+        comment.setStatus(newStatus);
         storeCommentRepository.save(comment);
+        dashboardStatistics.markStale();
+
+        if (newStatus == CommentStatus.APPROVED) {
+            storeRepository.adjustRatingAggregates(comment.getStore().getId(), comment.getRating(), 1);
+        } else if (oldStatus == CommentStatus.APPROVED) {
+            storeRepository.adjustRatingAggregates(comment.getStore().getId(), comment.getRating(), -1);
+        }
+        if (newStatus == CommentStatus.APPROVED || oldStatus == CommentStatus.APPROVED) {
+            fragmentCache.invalidate(FragmentCache.Scope.STORE, comment.getStore().getId());
+        }
     }
 
-    public void deleteComment(Long commentId) {
-        storeCommentRepository.deleteById(commentId);
+    /**
+     * Recalculate the aggregates only when their total disagrees with the approved comments, as for
+     * rows written before the aggregate columns existed. Returns the rows updated, 0 if already in step.
+     */
+    public int recalculateRatingAggregatesIfStale() {
+        if (storeRepository.sumApprovedReviewCounts() == storeCommentRepository.countByStatus(CommentStatus.APPROVED)) {
+            return 0;
+        }
+        return recalculateRatingAggregates();
+    }
+
+    public int recalculateRatingAggregates() {
+        fragmentCache.invalidateAll(FragmentCache.Scope.STORE);
+        return storeRepository.recalculateRatingAggregates();
     }
 
     // Statistics and analytics
@@ -269,13 +381,13 @@ public class StoreService {
         return storeRepository.getAverageCommentsPerStore();
     }
 
+    // Served from the denormalized aggregates; the store is usually already in the persistence context
     public double getStoreAverageRating(Long storeId) {
-        Double rating = storeCommentRepository.findAverageRatingByStoreIdAndStatus(storeId, CommentStatus.APPROVED);
-        return rating != null ? rating : 0.0;
+        return storeRepository.findById(storeId).map(Store::getAverageRating).orElse(0.0);
     }
 
     public long getStoreReviewCount(Long storeId) {
-        return storeCommentRepository.countByStoreIdAndStatus(storeId, CommentStatus.APPROVED);
+        return storeRepository.findById(storeId).map(Store::getApprovedCommentsCount).orElse(0L);
     }
 
     public long getStoreRecommendationCount(Long storeId) {
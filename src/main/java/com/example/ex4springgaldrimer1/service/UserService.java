@@ -2,47 +2,77 @@ package com.example.ex4springgaldrimer1.service;
 
 import com.example.ex4springgaldrimer1.entity.User;
 import com.example.ex4springgaldrimer1.enums.Role;
+import com.example.ex4springgaldrimer1.repository.UserGameStatsRepository;
 import com.example.ex4springgaldrimer1.repository.UserRepository;
+import com.example.ex4springgaldrimer1.security.AppUserDetails;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.util.List;
 import java.util.Optional;
 
 @Service
 @Transactional
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
+
+    // Request attribute holding the current user once it has been loaded
+    private static final String CURRENT_USER_ATTRIBUTE = UserService.class.getName() + ".currentUser";
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserGameStatsRepository userGameStatsRepository;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private DashboardStatistics dashboardStatistics;
+
     // Authentication methods
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
 
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPassword())
-                .authorities(user.getRole().getAuthority())
-                .accountExpired(false)
-                .accountLocked(!user.getEnabled())
-                .credentialsExpired(false)
-                .disabled(!user.getEnabled())
-                .build();
+        return new AppUserDetails(user);
+    }
+
+    /**
+     * Called after a successful login when the stored hash is weaker than the current BCrypt cost.
+     * The cached login entry still holds the old hash, so it is dropped as well.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newEncodedPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userDetails.getUsername()));
+
+        user.setPassword(newEncodedPassword);
+        userRepository.save(user);
+        forgetCurrentUser();
+        evictFromUserCache(user.getUsername());
+
+        return new AppUserDetails(user);
     }
 
     // User registration
@@ -63,7 +93,9 @@ public class UserService implements UserDetailsService {
         user.setPassword(passwordEncoder.encode(password));
         user.setRole(role);
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        dashboardStatistics.markStale();
+        return saved;
     }
 
     // Convenience method for customer registration
@@ -100,19 +132,85 @@ public class UserService implements UserDetailsService {
         return userRepository.findTopCustomersByGameScore(pageable);
     }
 
-    // Get current authenticated user
+    /**
+     * Get the current authenticated user. The entity is loaded at most once per request,
+     * by id when the principal carries one, and anonymous requests never query.
+     */
     public User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
             return null;
         }
 
-        String username = authentication.getName();
-        return userRepository.findByUsername(username).orElse(null);
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null
+                && request.getAttribute(CURRENT_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof CachedUser cached
+                && cached.username().equals(authentication.getName())) {
+            return cached.user();
+        }
+
+        User user = authentication.getPrincipal() instanceof AppUserDetails principal
+                ? userRepository.findById(principal.getId()).orElse(null)
+                : userRepository.findByUsername(authentication.getName()).orElse(null);
+
+        if (request != null) {
+            request.setAttribute(CURRENT_USER_ATTRIBUTE, new CachedUser(authentication.getName(), user),
+                    RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+
+    /**
+     * Id, username and role of the authenticated user, read from the security principal without a query.
+     * Falls back to getCurrentUser() for principals created elsewhere. Returns null for anonymous requests.
+     */
+    public AppUserDetails getCurrentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        if (authentication.getPrincipal() instanceof AppUserDetails principal) {
+            return principal;
+        }
+
+        User user = getCurrentUser();
+        return user != null ? new AppUserDetails(user) : null;
+    }
+
+    // Drop the per-request copy after a write so later reads in the same request see the change
+    private void forgetCurrentUser() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.removeAttribute(CURRENT_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private record CachedUser(String username, User user) {
+    }
+
+    /**
+     * Drop the login cache entry now and again after commit, so a login that reloads
+     * the account before the commit cannot put the old password or status back.
+     */
+    private void evictFromUserCache(String username) {
+        userCache.removeUserFromCache(username);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userCache.removeUserFromCache(username);
+                }
+            });
+        }
     }
 
     // User profile updates
     public User updateUser(User user) {
+        forgetCurrentUser();
+        evictFromUserCache(user.getUsername());
         return userRepository.save(user);
     }
 
@@ -122,6 +220,8 @@ public class UserService implements UserDetailsService {
 
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        forgetCurrentUser();
+        evictFromUserCache(username);
     }
 
     public void updateCustomerPoints(String username, int points) {
@@ -130,6 +230,7 @@ public class UserService implements UserDetailsService {
 
         user.addCustomerPoints(points);
         userRepository.save(user);
+        forgetCurrentUser();
     }
 
     public void updateHighestGameScore(String username, int score) {
@@ -138,6 +239,7 @@ public class UserService implements UserDetailsService {
 
         user.updateHighestScore(score);
         userRepository.save(user);
+        forgetCurrentUser();
     }
 
     // Validation methods
@@ -155,6 +257,8 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
         user.setEnabled(true);
         userRepository.save(user);
+        forgetCurrentUser();
+        evictFromUserCache(user.getUsername());
     }
 
     public void disableUser(Long userId) {
@@ -162,10 +266,16 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
         user.setEnabled(false);
         userRepository.save(user);
+        forgetCurrentUser();
+        evictFromUserCache(user.getUsername());
     }
 
     public void deleteUser(Long userId) {
+        userRepository.findById(userId).ifPresent(user -> evictFromUserCache(user.getUsername()));
+        userGameStatsRepository.deleteById(userId);
         userRepository.deleteById(userId);
+        forgetCurrentUser();
+        dashboardStatistics.markStale();
     }
 
     // Statistics
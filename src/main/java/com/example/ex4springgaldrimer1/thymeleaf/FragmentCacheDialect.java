@@ -0,0 +1,32 @@
+package com.example.ex4springgaldrimer1.thymeleaf;
+
+import com.example.ex4springgaldrimer1.service.FragmentCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.dialect.AbstractProcessorDialect;
+import org.thymeleaf.processor.IProcessor;
+import org.thymeleaf.standard.StandardDialect;
+
+import java.util.Set;
+
+/**
+ * Adds cache:fragment, which renders an element once and then serves its HTML from the FragmentCache:
+ * {@code <div cache:fragment="|product:${product.id}|">}. Picked up by Spring Boot's template engine as a bean.
+ */
+@Component
+public class FragmentCacheDialect extends AbstractProcessorDialect {
+
+    public static final String PREFIX = "cache";
+
+    @Autowired
+    private FragmentCache fragmentCache;
+
+    public FragmentCacheDialect() {
+        super("Fragment Cache", PREFIX, StandardDialect.PROCESSOR_PRECEDENCE);
+    }
+
+    @Override
+    public Set<IProcessor> getProcessors(String dialectPrefix) {
+        return Set.of(new FragmentCacheProcessor(dialectPrefix, fragmentCache));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.ex4springgaldrimer1.thymeleaf;
+
+import com.example.ex4springgaldrimer1.service.FragmentCache;
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.context.IWebContext;
+import org.thymeleaf.engine.AttributeName;
+import org.thymeleaf.engine.TemplateManager;
+import org.thymeleaf.engine.TemplateModel;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.inline.NoOpInliner;
+import org.thymeleaf.model.IModel;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.processor.element.AbstractAttributeModelProcessor;
+import org.thymeleaf.processor.element.IElementModelStructureHandler;
+import org.thymeleaf.standard.expression.StandardExpressions;
+import org.thymeleaf.templatemode.TemplateMode;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+
+/**
+ * cache:fragment="key expression". On a miss the element, with its remaining attributes and body, is rendered
+ * on its own with the current variables and the output stored; on a hit the stored output replaces the element
+ * without evaluating anything inside it. A null key, or a disabled cache, renders normally.
+ * Runs after th:each and th:if, so it can sit on the iterated element. Only for fragments that look the same
+ * to every visitor: no forms (CSRF tokens), no sec: checks, no per-user text.
+ */
+class FragmentCacheProcessor extends AbstractAttributeModelProcessor {
+
+    private static final String ATTRIBUTE_NAME = "fragment";
+
+    // Standard th:each is 200 and th:if/th:unless 300
+    private static final int PRECEDENCE = 350;
+
+    private final FragmentCache fragmentCache;
+
+    FragmentCacheProcessor(String dialectPrefix, FragmentCache fragmentCache) {
+        super(TemplateMode.HTML, dialectPrefix, null, false, ATTRIBUTE_NAME, true, PRECEDENCE, true);
+        this.fragmentCache = fragmentCache;
+    }
+
+    @Override
+    protected void doProcess(ITemplateContext context, IModel model, AttributeName attributeName,
+                             String attributeValue, IElementModelStructureHandler structureHandler) {
+        // Removed here rather than after doProcess, so the element can be rendered without recursing into this processor
+        IProcessableElementTag element = (IProcessableElementTag) model.get(0);
+        model.replace(0, context.getModelFactory().removeAttribute(element, attributeName));
+        if (!fragmentCache.isEnabled()) {
+            return;
+        }
+
+        Object key = StandardExpressions.getExpressionParser(context.getConfiguration())
+                .parseExpression(context, attributeValue)
+                .execute(context);
+        if (key == null) {
+            return;
+        }
+
+        String cacheKey = key.toString();
+        String html;
+        try {
+            html = fragmentCache.get(cacheKey);
+            if (html == null) {
+                Map<FragmentCache.Scope, Long> snapshot = snapshot(context);
+                html = render(context, model, element);
+                fragmentCache.put(cacheKey, html, snapshot);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new TemplateProcessingException("Invalid fragment cache key '" + cacheKey + "'",
+                    context.getTemplateData().getTemplate(), element.getLine(), element.getCol(), e);
+        }
+
+        model.reset();
+        model.add(context.getModelFactory().createText(html));
+        // The output is final: text such as [[...]] in a product description must not be evaluated again
+        structureHandler.setInliner(NoOpInliner.INSTANCE);
+    }
+
+    // Generations from before the controller loaded the page's data, or now when not in a web request
+    @SuppressWarnings("unchecked")
+    private Map<FragmentCache.Scope, Long> snapshot(ITemplateContext context) {
+        if (context instanceof IWebContext webContext) {
+            Object snapshot = webContext.getExchange().getAttributeValue(FragmentCache.SNAPSHOT_ATTRIBUTE);
+            if (snapshot != null) {
+                return (Map<FragmentCache.Scope, Long>) snapshot;
+            }
+        }
+        return fragmentCache.snapshot();
+    }
+
+    // Re-parse the element's markup as a template of its own and process it with this context's variables
+    private static String render(ITemplateContext context, IModel model, IProcessableElementTag element) {
+        StringWriter markup = new StringWriter();
+        try {
+            model.write(markup);
+        } catch (IOException e) {
+            throw new TemplateProcessingException("Cannot serialize cached fragment", e);
+        }
+
+        TemplateManager templateManager = context.getConfiguration().getTemplateManager();
+        TemplateModel fragment = templateManager.parseString(context.getTemplateData(), markup.toString(),
+                element.getLine(), element.getCol(), context.getTemplateMode(), false);
+        StringWriter output = new StringWriter();
+        templateManager.process(fragment, context, output);
+        return output.toString();
+    }
+}
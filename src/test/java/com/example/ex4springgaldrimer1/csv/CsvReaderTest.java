@@ -0,0 +1,99 @@
+package com.example.ex4springgaldrimer1.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvReaderTest {
+
+    @Test
+    void readsPlainRecordsWithAnyLineEnding() throws IOException {
+        assertEquals(List.of(List.of("a", "b", "c"), List.of("1", "2", "3"), List.of("x", "y", "z")),
+                readAll("a,b,c\r\n1,2,3\nx,y,z"));
+    }
+
+    @Test
+    void keepsEmptyFields() throws IOException {
+        assertEquals(List.of(List.of("a", "", ""), List.of("", "b", "")), readAll("a,,\r\n,b,\r\n"));
+    }
+
+    @Test
+    void skipsBlankLines() throws IOException {
+        assertEquals(List.of(List.of("a"), List.of("b")), readAll("\r\na\r\n\r\n\nb\r\n\r\n"));
+    }
+
+    @Test
+    void readsQuotedFieldsWithSeparatorsAndLineBreaks() throws IOException {
+        assertEquals(List.of(List.of("a,b", "line 1\r\nline 2", "line 3\nline 4", "plain")),
+                readAll("\"a,b\",\"line 1\r\nline 2\",\"line 3\nline 4\",plain\r\n"));
+    }
+
+    @Test
+    void unescapesDoubledQuotes() throws IOException {
+        assertEquals(List.of(List.of("say \"hi\"", "\"", "")), readAll("\"say \"\"hi\"\"\",\"\"\"\",\"\""));
+    }
+
+    @Test
+    void keepsQuotesInsideUnquotedFields() throws IOException {
+        assertEquals(List.of(List.of("5\" screen", "b")), readAll("5\" screen,b"));
+    }
+
+    @Test
+    void reportsTheLineEachRecordStartsOn() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a\r\n\"b\r\nc\"\r\n\r\nd\r\n"));
+
+        reader.readRecord();
+        assertEquals(1, reader.getRecordLine());
+        reader.readRecord();
+        assertEquals(2, reader.getRecordLine());
+        reader.readRecord();
+        assertEquals(5, reader.getRecordLine());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    void rejectsUnterminatedQuotedField() {
+        CsvReader reader = new CsvReader(new StringReader("name,barcode\r\nPhone,\"B1\r\nLaptop,B2\r\n"));
+
+        IOException error = assertThrows(IOException.class, () -> {
+            while (reader.readRecord() != null) {
+                // read to the broken record
+            }
+        });
+        assertTrue(error.getMessage().contains("Unterminated quoted field starting at line 2"), error.getMessage());
+    }
+
+    @Test
+    void rejectsRecordLongerThanTheLimit() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("short\r\n\"" + "x".repeat(50) + "\r\nmore\"\r\n"), 20);
+
+        assertEquals(List.of("short"), reader.readRecord());
+        IOException error = assertThrows(IOException.class, reader::readRecord);
+        assertTrue(error.getMessage().contains("exceeds 20 characters"), error.getMessage());
+    }
+
+    @Test
+    void acceptsRecordWithinTheLimit() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("abcd,efgh\r\n"), 10);
+
+        assertEquals(List.of("abcd", "efgh"), reader.readRecord());
+    }
+
+    private static List<List<String>> readAll(String csv) throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(csv));
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = reader.readRecord()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.ex4springgaldrimer1.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CsvWriterTest {
+
+    @Test
+    void quotesOnlyFieldsThatNeedIt() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvWriter writer = new CsvWriter(out);
+
+        writer.writeRecord(Arrays.asList("plain", "a,b", "say \"hi\"", "two\nlines", null, new BigDecimal("9.99")));
+        writer.flush();
+
+        assertEquals("plain,\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\",,9.99\r\n", out.toString());
+    }
+
+    @Test
+    void roundTripsThroughCsvReader() throws IOException {
+        List<List<String>> records = List.of(
+                List.of("name", "description", "price"),
+                List.of("Phone", "Fast, \"smart\"\r\nand light", "199.99"),
+                List.of("", "\"", "trailing\r"),
+                List.of("Cable", "line\nbreak", ""));
+
+        StringWriter out = new StringWriter();
+        CsvWriter writer = new CsvWriter(out);
+        for (List<String> record : records) {
+            writer.writeRecord(record);
+        }
+        writer.flush();
+
+        CsvReader reader = new CsvReader(new StringReader(out.toString()));
+        for (List<String> record : records) {
+            assertEquals(record, reader.readRecord());
+        }
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    void writesNullAsEmptyField() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvWriter writer = new CsvWriter(out);
+
+        writer.writeRecord(Arrays.asList(null, "b", null));
+
+        assertEquals(List.of("", "b", ""), new CsvReader(new StringReader(out.toString())).readRecord());
+    }
+}
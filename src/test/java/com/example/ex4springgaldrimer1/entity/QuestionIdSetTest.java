@@ -0,0 +1,114 @@
+package com.example.ex4springgaldrimer1.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuestionIdSetTest {
+
+    @Test
+    void keepsIdsSortedAndUnique() {
+        QuestionIdSet set = new QuestionIdSet();
+
+        assertTrue(set.add(42));
+        assertTrue(set.add(7));
+        assertTrue(set.add(1000));
+        assertFalse(set.add(7));
+
+        assertArrayEquals(new long[]{7, 42, 1000}, set.toArray());
+        assertTrue(set.contains(42));
+        assertFalse(set.contains(43));
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        QuestionIdSet set = new QuestionIdSet();
+        for (long id = 100; id > 0; id--) {
+            set.add(id);
+        }
+
+        assertEquals(100, set.size());
+        assertEquals(1, set.toArray()[0]);
+        assertEquals(100, set.toArray()[99]);
+    }
+
+    @Test
+    void roundTripsThroughPackedFormat() {
+        QuestionIdSet set = new QuestionIdSet();
+        for (long id : new long[]{3, 1, 128, 129, 16_384, 5_000_000_000L, Long.MAX_VALUE}) {
+            set.add(id);
+        }
+
+        QuestionIdSet decoded = QuestionIdSet.decode(set.encode());
+
+        assertEquals(set, decoded);
+        assertEquals(set.hashCode(), decoded.hashCode());
+        assertArrayEquals(set.toArray(), decoded.toArray());
+    }
+
+    @Test
+    void decodedSetAcceptsMoreIds() {
+        QuestionIdSet set = new QuestionIdSet();
+        for (long id = 1; id <= 16; id++) {
+            set.add(id * 10);
+        }
+
+        QuestionIdSet decoded = QuestionIdSet.decode(set.encode());
+        assertTrue(decoded.add(5));
+        assertTrue(decoded.add(165));
+
+        assertEquals(18, decoded.size());
+        assertEquals(5, decoded.toArray()[0]);
+        assertEquals(165, decoded.toArray()[17]);
+    }
+
+    @Test
+    void packsConsecutiveIdsIntoAByteEach() {
+        QuestionIdSet set = new QuestionIdSet();
+        for (long id = 1; id <= 100; id++) {
+            set.add(id);
+        }
+
+        // Version byte, count, then a one-byte gap per id
+        assertEquals(102, set.encode().length);
+    }
+
+    @Test
+    void decodesMissingDataAsEmptySet() {
+        assertTrue(QuestionIdSet.decode(null).isEmpty());
+        assertTrue(QuestionIdSet.decode(new byte[0]).isEmpty());
+        assertTrue(QuestionIdSet.decode(new QuestionIdSet().encode()).isEmpty());
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        assertThrows(IllegalArgumentException.class, () -> QuestionIdSet.decode(new byte[]{2, 0}));
+    }
+
+    @Test
+    void rejectsTruncatedData() {
+        QuestionIdSet set = new QuestionIdSet();
+        set.add(1);
+        set.add(300);
+        byte[] encoded = set.encode();
+
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 1);
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> QuestionIdSet.decode(truncated));
+        assertEquals("Truncated packed id data", error.getMessage());
+    }
+
+    @Test
+    void parsesLegacyCommaSeparatedIds() {
+        QuestionIdSet set = QuestionIdSet.parseLegacy(" 12, 3,,12 ,7");
+
+        assertArrayEquals(new long[]{3, 7, 12}, set.toArray());
+        assertTrue(QuestionIdSet.parseLegacy(null).isEmpty());
+        assertTrue(QuestionIdSet.parseLegacy("  ").isEmpty());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.ex4springgaldrimer1.pagination;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeysetCursorTest {
+
+    @Test
+    void roundTripsEverySupportedValueType() {
+        Object[] values = {"Sony | Bravia", "", new BigDecimal("1299.90"), LocalDateTime.of(2024, 2, 29, 13, 5, 7, 123_000_000),
+                42, 9_000_000_000L, true, null};
+
+        for (Object value : values) {
+            KeysetCursor cursor = new KeysetCursor("name", Sort.Direction.DESC, value, 17L);
+
+            KeysetCursor decoded = KeysetCursor.decode(cursor.encode(), "name", Sort.Direction.DESC);
+
+            assertEquals(value, decoded.getValue(), "value " + value);
+            assertEquals(17L, decoded.getId());
+            assertEquals("name", decoded.getProperty());
+            assertEquals(Sort.Direction.DESC, decoded.getDirection());
+        }
+    }
+
+    @Test
+    void encodesAsUrlSafeToken() {
+        String token = new KeysetCursor("name", Sort.Direction.ASC, "a/b+c?d=e&f", 1L).encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void ignoresTokenIssuedForAnotherSort() {
+        String token = new KeysetCursor("price", Sort.Direction.ASC, new BigDecimal("10"), 5L).encode();
+
+        assertNull(KeysetCursor.decode(token, "name", Sort.Direction.ASC));
+        assertNull(KeysetCursor.decode(token, "price", Sort.Direction.DESC));
+    }
+
+    @Test
+    void ignoresBlankOrMalformedTokens() {
+        assertNull(KeysetCursor.decode(null, "name", Sort.Direction.ASC));
+        assertNull(KeysetCursor.decode(" ", "name", Sort.Direction.ASC));
+        assertNull(KeysetCursor.decode("not base64!", "name", Sort.Direction.ASC));
+        assertNull(KeysetCursor.decode(token("1|name|ASC|1|S"), "name", Sort.Direction.ASC));
+        assertNull(KeysetCursor.decode(token("1|name|ASC|x|S|a"), "name", Sort.Direction.ASC));
+        assertNull(KeysetCursor.decode(token("1|price|ASC|1|D|cheap"), "price", Sort.Direction.ASC));
+        assertNull(KeysetCursor.decode(token("1|createdAt|ASC|1|T|yesterday"), "createdAt", Sort.Direction.ASC));
+        assertNull(KeysetCursor.decode(token("1|name|ASC|1|Q|a"), "name", Sort.Direction.ASC));
+    }
+
+    @Test
+    void ignoresTokenOfAnotherFormatVersion() {
+        assertNull(KeysetCursor.decode(token("2|name|ASC|1|S|a"), "name", Sort.Direction.ASC));
+        assertEquals("a", KeysetCursor.decode(token("1|name|ASC|1|S|a"), "name", Sort.Direction.ASC).getValue());
+    }
+
+    @Test
+    void rejectsUnsupportedValueType() {
+        KeysetCursor cursor = new KeysetCursor("name", Sort.Direction.ASC, new Object(), 1L);
+
+        assertThrows(IllegalArgumentException.class, cursor::encode);
+    }
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
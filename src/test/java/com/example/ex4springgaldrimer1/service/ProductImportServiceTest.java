@@ -0,0 +1,192 @@
+package com.example.ex4springgaldrimer1.service;
+
+import com.example.ex4springgaldrimer1.entity.Product;
+import com.example.ex4springgaldrimer1.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductImportServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private FacetCache facetCache;
+
+    @Mock
+    private FragmentCache fragmentCache;
+
+    @Mock
+    private DashboardStatistics dashboardStatistics;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private ProductImportService productImportService;
+
+    // Barcodes "in the database", filled by the mocked saves
+    private final Set<String> storedBarcodes = new HashSet<>();
+    private final RecordingListener listener = new RecordingListener();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(productImportService, "batchSize", 2);
+        ReflectionTestUtils.setField(productImportService, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(productImportService, "objectMapper", new ObjectMapper());
+
+        lenient().when(productRepository.findExistingBarcodes(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<String>>getArgument(0).stream().filter(storedBarcodes::contains).toList());
+        lenient().when(productRepository.saveAll(any())).thenAnswer(invocation -> {
+            Iterable<Product> products = invocation.getArgument(0);
+            products.forEach(product -> storedBarcodes.add(product.getBarcode()));
+            return products;
+        });
+    }
+
+    @Test
+    void skipsBarcodeRepeatedInALaterBatch() throws IOException {
+        ProductImportService.ImportProgress progress = importCsv("""
+                name,barcode,price,category
+                Phone,A1,199.99,Electronics
+                Laptop,B2,899.00,Electronics
+                Phone again,A1,189.99,Electronics
+                Cable,C3,9.99,Accessories
+                Laptop again,B2,799.00,Electronics
+                """);
+
+        assertEquals(5, progress.getRowsRead());
+        assertEquals(3, progress.getImported());
+        assertEquals(2, progress.getSkipped());
+        assertEquals(0, progress.getFailed());
+        assertEquals(Set.of("A1", "B2", "C3"), storedBarcodes);
+        assertEquals(List.of("skipped 4 A1: Barcode already exists", "skipped 6 B2: Barcode already exists"), listener.events);
+    }
+
+    @Test
+    void skipsBarcodeRepeatedInTheSameBatch() throws IOException {
+        ProductImportService.ImportProgress progress = importCsv("""
+                name,barcode,price,category
+                Phone,A1,199.99,Electronics
+                Phone again,A1,189.99,Electronics
+                Cable,C3,9.99,Accessories
+                """);
+
+        assertEquals(2, progress.getImported());
+        assertEquals(List.of("skipped 3 A1: Barcode appears earlier in the file"), listener.events);
+    }
+
+    @Test
+    void skipsBarcodeAlreadyInTheDatabase() throws IOException {
+        storedBarcodes.add("B2");
+
+        ProductImportService.ImportProgress progress = importCsv("""
+                name,barcode,price,category
+                Phone,A1,199.99,Electronics
+                Laptop,B2,899.00,Electronics
+                """);
+
+        assertEquals(1, progress.getImported());
+        assertEquals(List.of("skipped 3 B2: Barcode already exists"), listener.events);
+    }
+
+    @Test
+    void retriesFailedBatchRowByRow() throws IOException {
+        doThrow(new DataIntegrityViolationException("batch failed")).when(productRepository).saveAll(any());
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> {
+            Product product = invocation.getArgument(0);
+            if (product.getBarcode().equals("BAD")) {
+                throw new DataIntegrityViolationException("could not execute statement",
+                        new IllegalStateException("Duplicate entry 'BAD'"));
+            }
+            storedBarcodes.add(product.getBarcode());
+            return product;
+        });
+
+        ProductImportService.ImportProgress progress = importCsv("""
+                name,barcode,price,category
+                Phone,A1,199.99,Electronics
+                Broken,BAD,5.00,Electronics
+                """);
+
+        assertEquals(1, progress.getImported());
+        assertEquals(1, progress.getFailed());
+        assertEquals(Set.of("A1"), storedBarcodes);
+        assertEquals(List.of("failed 3 BAD: Duplicate entry 'BAD'"), listener.events);
+    }
+
+    @Test
+    void reportsInvalidRowsAndKeepsGoing() throws IOException {
+        ProductImportService.ImportProgress progress = importCsv("""
+                name,barcode,price,category
+                Phone,A1,abc,Electronics
+                ,B2,5.00,Electronics
+                "Cable, braided",C3,9.99,Accessories
+                """);
+
+        assertEquals(1, progress.getImported());
+        assertEquals(2, progress.getFailed());
+        assertEquals(List.of("failed 2 A1: Invalid price: abc", "failed 3 B2: Product name is required"), listener.events);
+    }
+
+    @Test
+    void rejectsCsvWithoutRequiredColumns() {
+        IOException error = assertThrows(IOException.class, () -> importCsv("name,price\nPhone,1.00\n"));
+
+        assertEquals("Missing required column(s): barcode, category", error.getMessage());
+    }
+
+    private ProductImportService.ImportProgress importCsv(String csv) throws IOException {
+        return productImportService.importProducts(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                ProductImportService.Format.CSV, listener);
+    }
+
+    private static class RecordingListener implements ProductImportService.Listener {
+
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void rowSkipped(long line, String barcode, String reason) {
+            events.add("skipped " + line + " " + barcode + ": " + reason);
+        }
+
+        @Override
+        public void rowFailed(long line, String barcode, String reason) {
+            events.add("failed " + line + " " + barcode + ": " + reason);
+        }
+    }
+}